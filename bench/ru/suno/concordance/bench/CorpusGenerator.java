@@ -0,0 +1,165 @@
+package ru.suno.concordance.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ru.suno.concordance.utils.PlainTextFile;
+
+/**
+ * Искусственный корпус для замеров: русский текст, похожий на текст, извлеченный
+ * из исходных документов.
+ * <ul>
+ * <li>слова собираются из слогов, частоты слов убывают по закону Ципфа;</li>
+ * <li>предложения начинаются с заглавной буквы и заканчиваются точкой,
+ * восклицательным или вопросительным знаком, внутри - запятые;</li>
+ * <li>в предложениях встречаются сокращения из <code>add/exeptions.doc</code>,
+ * которые не должны заканчивать предложение;</li>
+ * <li>абзацы разделены CR, перед каждой страницей - ссылка <code>том, страница</code>
+ * в отдельной строке.</li>
+ * </ul>
+ * Один и тот же seed дает один и тот же текст.
+ * */
+public class CorpusGenerator {
+
+    private static final String[] SYLLABLES = {
+        "ка", "ло", "ми", "на", "ре", "то", "сти", "ва", "же", "по",
+        "ле", "ни", "ко", "да", "ра", "ство", "ель", "ов", "ще", "бу",
+        "гра", "зна", "мо", "ты", "чен", "ий", "ая", "ом", "ух", "ёж"
+    };
+
+    private static final String[] ABBREVIATIONS = {
+        "г.", "гг.", "см.", "стр.", "гл.", "т. е.", "т. д.", "напр.", "кн.", "св."
+    };
+
+    private static final char[] SENTENCE_ENDS = {'.', '.', '.', '.', '.', '!', '?'};
+
+    /** Количество различных слов. */
+    private static final int VOCABULARY_SIZE = 20000;
+
+    /** Примерный размер страницы, символов. */
+    private static final int PAGE_SIZE = 1800;
+
+    private final Random random;
+    private final String[] vocabulary;
+    /** Накопленные вероятности слов словаря (закон Ципфа). */
+    private final double[] cumulative;
+
+    private int volume = 1;
+    private int page = 0;
+
+    public CorpusGenerator(long seed) {
+        random = new Random(seed);
+        vocabulary = new String[VOCABULARY_SIZE];
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            word.setLength(0);
+            int syllables = 1 + random.nextInt(4);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        cumulative = new double[VOCABULARY_SIZE];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Текст примерно заданного размера, страницы продолжают нумерацию
+     * предыдущих вызовов.
+     * */
+    public String generate(int size) {
+        StringBuilder text = new StringBuilder(size + PAGE_SIZE);
+        while (text.length() < size) {
+            appendPage(text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Записать корпус из нескольких документов в каталог, в формате {@link PlainTextFile}.
+     * @return файлы документов по порядку.
+     * */
+    public List<File> writeDocuments(File dir, int documentCount, int documentSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        PlainTextFile writer = new PlainTextFile();
+        List<File> result = new ArrayList<File>();
+        for (int i = 0; i < documentCount; i++) {
+            File file = new File(dir, String.format("doc%03d.txt", i));
+            writer.writeTextFileContent(file, generate(documentSize));
+            result.add(file);
+        }
+        return result;
+    }
+
+    /** Случайное слово словаря, частые слова выпадают чаще. */
+    public String nextWord() {
+        double p = random.nextDouble();
+        int low = 0;
+        int high = VOCABULARY_SIZE - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < p) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return vocabulary[low];
+    }
+
+    private void appendPage(StringBuilder text) {
+        page++;
+        if (page > 500) {
+            volume++;
+            page = 1;
+        }
+        text.append(volume).append(", ").append(page).append('\r');
+
+        int pageEnd = text.length() + PAGE_SIZE;
+        while (text.length() < pageEnd) {
+            int sentences = 1 + random.nextInt(6);
+            for (int i = 0; i < sentences; i++) {
+                if (i > 0) {
+                    text.append(' ');
+                }
+                appendSentence(text);
+            }
+            text.append('\r');
+        }
+    }
+
+    private void appendSentence(StringBuilder text) {
+        int words = 3 + random.nextInt(20);
+        for (int i = 0; i < words; i++) {
+            String word = nextWord();
+            if (i == 0) {
+                text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                text.append(word);
+            }
+            if (i < words - 1) {
+                int r = random.nextInt(100);
+                if (r < 8) {
+                    text.append(',');
+                } else if (r < 11) {
+                    text.append(' ').append(ABBREVIATIONS[random.nextInt(ABBREVIATIONS.length)]);
+                }
+                text.append(' ');
+            }
+        }
+        text.append(SENTENCE_ENDS[random.nextInt(SENTENCE_ENDS.length)]);
+    }
+}
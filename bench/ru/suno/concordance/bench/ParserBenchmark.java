@@ -0,0 +1,111 @@
+package ru.suno.concordance.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.parser.Highlighter;
+import ru.suno.concordance.parser.PagesParser;
+import ru.suno.concordance.parser.SentenceParser;
+import ru.suno.concordance.parser.StringFilter;
+import ru.suno.concordance.parser.WordParser;
+
+/**
+ * Этапы разбора текста на корпусах разного размера: время должно расти линейно.
+ * Запускается из корня проекта (сокращения читаются из <code>add/exeptions.doc</code>).
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    private static final long SEED = 20111;
+
+    /** Сколько предложений подчеркивать за один замер. */
+    private static final int UNDERLINE_SENTENCES = 10000;
+
+    /** Размер корпуса, символов. */
+    @Param({"100000", "1000000", "10000000"})
+    public int size;
+
+    private String text;
+    private SentenceParser sentenceParser;
+    private WordParser wordParser;
+
+    /** Предложения и подчеркиваемые в них слова (слово из предложения). */
+    private final List<String> sentences = new ArrayList<String>();
+    private final List<String> words = new ArrayList<String>();
+
+    @Setup
+    public void setUp() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(SEED);
+        text = generator.generate(size);
+        sentenceParser = new SentenceParser();
+        wordParser = new WordParser();
+
+        // сокращения загружаются при первом разборе, не во время замера
+        Collection<ConcSentence> all = sentenceParser.getAllSentencies(text, new ConcRef(1, 1), null);
+        for (ConcSentence sentence : all) {
+            if (sentences.size() == UNDERLINE_SENTENCES) {
+                break;
+            }
+            Collection<ConcWord> sentenceWords = wordParser.getAllWords(sentence.getSourceSentence());
+            if (sentenceWords.isEmpty()) {
+                continue;
+            }
+            sentences.add(sentence.getSourceSentence());
+            words.add(sentenceWords.iterator().next().getWord());
+        }
+    }
+
+    @Benchmark
+    public Collection<ConcPage> parseTextToPages() throws Exception {
+        return new PagesParser().parseTextToPages(text);
+    }
+
+    @Benchmark
+    public Collection<ConcSentence> getAllSentencies() {
+        return sentenceParser.getAllSentencies(text, new ConcRef(1, 1), null);
+    }
+
+    @Benchmark
+    public Collection<ConcWord> getAllWords() {
+        return wordParser.getAllWords(text);
+    }
+
+    @Benchmark
+    public void underLineWords(Blackhole bh) {
+        for (int i = 0; i < sentences.size(); i++) {
+            bh.consume(StringFilter.underLineWords(sentences.get(i), words.get(i)));
+        }
+    }
+
+    /** То же подчеркивание, как при записи конкорданса ({@link Highlighter}). */
+    @Benchmark
+    public void highlighter(Blackhole bh) {
+        for (int i = 0; i < sentences.size(); i++) {
+            bh.consume(new Highlighter(words.get(i)).underline(sentences.get(i)));
+        }
+    }
+}
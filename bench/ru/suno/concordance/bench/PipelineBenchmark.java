@@ -0,0 +1,126 @@
+package ru.suno.concordance.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.suno.concordance.utils.CachedWordFile;
+import ru.suno.concordance.utils.InputFileFactory;
+import ru.suno.concordance.utils.PagesProcessor;
+import ru.suno.concordance.utils.ProcessingListener;
+
+/**
+ * Составление конкорданса целиком ({@link PagesProcessor}) по нескольким документам:
+ * чтение, разбор, индекс, запись файлов букв. Каждый замер - один запуск без сохраненных
+ * индексов и текста документов.
+ * Запускается из корня проекта (сокращения читаются из <code>add/exeptions.doc</code>).
+ * */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    private static final long SEED = 20111;
+
+    private static final int DOCUMENT_COUNT = 8;
+
+    /** Общий размер корпуса, символов. */
+    @Param({"1000000", "10000000", "50000000"})
+    public int size;
+
+    private File workDir;
+    private List<File> documents;
+    private File outDir;
+
+    @Setup(Level.Trial)
+    public void createCorpus() throws IOException {
+        workDir = File.createTempFile("concordance-bench", "");
+        workDir.delete();
+        documents = new CorpusGenerator(SEED).writeDocuments(new File(workDir, "src"), DOCUMENT_COUNT, size / DOCUMENT_COUNT);
+        InputFileFactory._fileFormat = InputFileFactory.FILE_FORMAT.PLAIN_TEXT;
+    }
+
+    /**
+     * Новый каталог результата и без сохраненного текста документов: документы
+     * читаются и разбираются заново, а не берутся из индекса и кеша текста.
+     * */
+    @Setup(Level.Iteration)
+    public void cleanOutput() {
+        delete(outDir);
+        delete(new File(documents.get(0).getParentFile(), CachedWordFile.CACHE_DIR));
+        outDir = new File(workDir, "out");
+        outDir.mkdirs();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        delete(workDir);
+        InputFileFactory._fileFormat = InputFileFactory.FILE_FORMAT.MS_WORD_97;
+    }
+
+    /** Журнал не выводится, ошибка обработки прерывает замер. */
+    private static class QuietListener implements ProcessingListener {
+
+        private volatile Throwable failure = null;
+
+        public void stageStarted(String stage) {
+        }
+
+        public void stageFinished(String stage) {
+        }
+
+        public void documentProcessed(File document, long bytes, long words, int sentences) {
+        }
+
+        public void message(String message) {
+        }
+
+        public void error(String message, Throwable ex) {
+            failure = ex;
+        }
+    }
+
+    @Benchmark
+    public String processAllDocuments() {
+        QuietListener listener = new QuietListener();
+        PagesProcessor processor = new PagesProcessor(listener);
+        processor.setDocPath(outDir.getPath());
+        processor.setResultName("bench");
+        String result = processor.processAllDocuments(documents);
+        if (listener.failure != null) {
+            throw new IllegalStateException(result, listener.failure);
+        }
+        return result;
+    }
+
+    private static void delete(File file) {
+        if (file == null) {
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
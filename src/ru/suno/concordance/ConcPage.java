@@ -1,27 +1,27 @@
-package ru.suno.concordance;
-
-
-public class ConcPage {
-    
-    /** Ссылка (номер тома, номер страницы). */
-    private ConcRef reference;
-    
-    /** Текст на странице. */
-    private String text;
-
-    public ConcRef getReference() {
-        return reference;
-    }
-
-    public void setReference(ConcRef ref) {
-        this.reference = ref;
-    }
-
-    public String getText() {
-        return text;
-    }
-
-    public void setText(String i_text) {
-        text = i_text;
-    }
-}
+package ru.suno.concordance;
+
+
+public class ConcPage {
+    
+    /** Ссылка (номер тома, номер страницы). */
+    private ConcRef reference;
+    
+    /** Текст на странице, обычно часть текста документа ({@link TextSlice}). */
+    private CharSequence text;
+
+    public ConcRef getReference() {
+        return reference;
+    }
+
+    public void setReference(ConcRef ref) {
+        this.reference = ref;
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public void setText(CharSequence i_text) {
+        text = i_text;
+    }
+}
@@ -1,108 +1,136 @@
-package ru.suno.concordance;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.StringTokenizer;
-
-import ru.suno.concordance.parser.StringFilter;
-
-/**
- * Предложение для конкорданса. 
- * */
-public class ConcSentence {    
-    private ConcRef reference;
-    
-    private int sentBeginPos;    
-    private int sentEndPos;    
-    private boolean broken = false;
-    
-    private ConcSentence previousSentence = null;   
-    private ConcSentence nextSentence = null;
-    
-    public ConcSentence (String sentence) {
-        setSourceSentence(sentence);
-    }
-        
-    /** Предложение в виде коллекции строк. */
-    private Collection<String> m_sentence = new ArrayList<String>();
-    
-    private String m_sourceSentence;
-    
-    /** Возвращает предожение для конкорданса в виде массива строк. */
-    public Collection<String> getSentence() {
-        return m_sentence;
-    }
-
-    public String getSourceSentence() {
-        return m_sourceSentence;
-    }
-
-    private void setSourceSentence(String sourceSentence) {
-        m_sourceSentence = sourceSentence;
-
-        m_sentence.clear();
-        String workSentence = StringFilter.replacePunctChars(sourceSentence);
-        
-        StringTokenizer st = new StringTokenizer(workSentence);
-        String word;
-        while (st.hasMoreTokens()) {
-            word = st.nextToken();
-            // TODO: доделать capitalization
-            word = word.toLowerCase();
-            
-            m_sentence.add(word);
-        }
-    }
-
-    /** Получить ссылку. */
-    public ConcRef getReference() {
-        return reference;
-    }
-
-    /** Установить ссылку. */
-    public void setReference(ConcRef reference) {
-        this.reference = reference;
-    }
-
-    public int getSentBeginPos() {
-        return sentBeginPos;
-    }
-
-    public void setSentBeginPos(int sentBeginPos) {
-        this.sentBeginPos = sentBeginPos;
-    }
-
-    public int getSentEndPos() {
-        return sentEndPos;
-    }
-
-    public void setSentEndPos(int sentEndPos) {
-        this.sentEndPos = sentEndPos;
-    }
-
-    public boolean isBroken() {
-        return broken;
-    }
-
-    public void setBroken(boolean isBroken) {
-        this.broken = isBroken;
-    }
-
-    public ConcSentence getPreviousSentence() {
-        return previousSentence;
-    }
-
-    public void setPreviousSentence(ConcSentence previousSentence) {
-        this.previousSentence = previousSentence;
-    }
-
-    public ConcSentence getNextSentence() {
-        return nextSentence;
-    }
-
-    public void setNextSentence(ConcSentence nextSentence) {
-        this.nextSentence = nextSentence;
-    }
-    
-
-}
+package ru.suno.concordance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import ru.suno.concordance.parser.WordTokenizer;
+
+/**
+ * Предложение для конкорданса.
+ * <p>Легкое представление строки {@link SentenceTable}: все данные предложения
+ * хранятся в таблице, объект создается по требованию (например, для вывода).
+ * Два представления одного и того же предложения равны.
+ * */
+public class ConcSentence {
+
+    private final SentenceTable table;
+    private final int id;
+
+    /** Отдельное предложение, не связанное с другими. */
+    public ConcSentence (String sentence) {
+        table = new SentenceTable();
+        id = table.addSentence(table.addPage(sentence, null), 0, sentence.length());
+    }
+
+    ConcSentence(SentenceTable i_table, int i_id) {
+        table = i_table;
+        id = i_id;
+    }
+
+    /** Таблица, в которой хранится предложение. */
+    public SentenceTable getTable() {
+        return table;
+    }
+
+    /** Номер предложения в таблице. */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает предожение для конкорданса в виде массива строк:
+     * слова и знаки препинания в нижнем регистре. Создается при каждом вызове.
+     * */
+    public Collection<String> getSentence() {
+        final Collection<String> result = new ArrayList<String>();
+        tokenize(new WordTokenizer.TokenHandler() {
+            public void token(CharSequence src, int start, int end) {
+                // TODO: доделать capitalization
+                result.add(src.subSequence(start, end).toString().toLowerCase());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Текст предложения. Копируется из общего текста при каждом вызове,
+     * поэтому нужен только для вывода.
+     * */
+    public String getSourceSentence() {
+        return table.getSourceSentence(id);
+    }
+
+    /**
+     * Текст предложения для вывода в конкорданс: разорванное предложение
+     * дополняется связанными с ним предыдущим и следующим.
+     * */
+    public String getContextSentence() {
+        String result = getSourceSentence();
+        // проверить на разрывы и дополнить если необходимо
+        if (isBroken()) {
+            int prev = table.getPrevious(id);
+            if (prev != -1) {
+                result = table.getSourceSentence(prev) + result;
+            }
+            int next = table.getNext(id);
+            if (next != -1) {
+                result = result + table.getSourceSentence(next);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Разбить предложение на слова и знаки препинания без создания строк.
+     * */
+    public void tokenize(WordTokenizer.TokenHandler handler) {
+        table.tokenize(id, handler);
+    }
+
+    /** Получить ссылку. */
+    public ConcRef getReference() {
+        return table.getReference(id);
+    }
+
+    /** Начало предложения в тексте страницы. */
+    public int getSentBeginPos() {
+        return table.getBegin(id);
+    }
+
+    /** Конец предложения в тексте страницы. */
+    public int getSentEndPos() {
+        return table.getEnd(id);
+    }
+
+    public boolean isBroken() {
+        return table.isBroken(id);
+    }
+
+    public void setBroken(boolean isBroken) {
+        table.setBroken(id, isBroken);
+    }
+
+    public ConcSentence getPreviousSentence() {
+        int prev = table.getPrevious(id);
+        return prev == -1 ? null : new ConcSentence(table, prev);
+    }
+
+    public ConcSentence getNextSentence() {
+        int next = table.getNext(id);
+        return next == -1 ? null : new ConcSentence(table, next);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ConcSentence)) {
+            return false;
+        }
+        ConcSentence other = (ConcSentence) obj;
+        return table == other.table && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(table) * 31 + id;
+    }
+}
@@ -0,0 +1,510 @@
+package ru.suno.concordance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Словарь конкорданса. Хеш-таблица с открытой адресацией: нормализованное
+ * (в нижнем регистре) слово -> номер слова, количество употреблений хранится
+ * в массиве счетчиков.
+ * <p>Номера слов идут подряд с нуля, поэтому их можно хранить вместо самих слов
+ * (например, в предложениях). Слово хранится в словаре один раз, объекты
+ * {@link ConcWord} создаются только при выдаче слов.
+ * <p>Поиск слова не зависит от размера словаря.
+ * */
+public class ConcWordTable implements Serializable {
+
+    private static final long serialVersionUID = 4684009000435140726L;
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // при сохранении записываются только слова и счетчики, таблица строится заново
+
+    /** Номер слова для каждой ячейки таблицы, EMPTY - ячейка свободна. */
+    private transient int[] slots;
+    private transient int mask;
+
+    /** Нормализованные слова по номеру. */
+    private transient String[] keys;
+    /** Слова в том виде, в каком встретились впервые (та же строка, если совпадает с нормализованным). */
+    private transient String[] sourceWords;
+    private transient int[] hashes;
+    private transient int[] counts;
+    private transient int size = 0;
+
+    /** Ключи сортировки по номеру слова, строятся при первой сортировке. */
+    private transient byte[][] sortKeys = null;
+
+    public ConcWordTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ConcWordTable(int expectedSize) {
+        init(expectedSize);
+    }
+
+    private void init(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+
+        keys = new String[capacity / 2];
+        sourceWords = new String[capacity / 2];
+        hashes = new int[capacity / 2];
+        counts = new int[capacity / 2];
+    }
+
+    /**
+     * Добавить одно употребление слова.
+     * @return номер слова в словаре.
+     * */
+    public int add(String sourceWord) {
+        // TODO: доделать capitalization
+        String key = sourceWord.toLowerCase();
+        int hash = hash(key);
+        int slot = findSlot(key, hash);
+        int id = slots[slot];
+        if (id == EMPTY) {
+            id = insert(slot, key, sourceWord, hash);
+        }
+        counts[id]++;
+        return id;
+    }
+
+    /**
+     * Добавить слово с заданным количеством употреблений.
+     * @param occurences количество употреблений, может быть 0 - слово только заносится в словарь.
+     * @return номер слова в словаре.
+     * */
+    public int add(String sourceWord, int occurences) {
+        return add(sourceWord.toLowerCase(), sourceWord, occurences);
+    }
+
+    /**
+     * Добавить одно употребление слова, заданного частью текста.
+     * Строка создается, только если слово встречается впервые.
+     * @return номер слова в словаре.
+     * */
+    public int add(CharSequence text, int start, int end) {
+        return add(text, start, end, true);
+    }
+
+    /**
+     * Добавить одно употребление слова, заданного частью текста,
+     * только если слово уже есть в словаре. Строка не создается.
+     * @return номер слова в словаре или -1, если слова нет в словаре.
+     * */
+    public int increment(CharSequence text, int start, int end) {
+        return add(text, start, end, false);
+    }
+
+    private int add(CharSequence text, int start, int end, boolean insert) {
+        if (!isSimpleCaseLocale()) {
+            return add(text.subSequence(start, end).toString(), insert);
+        }
+        // хеш строки в нижнем регистре, как String.hashCode
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isSimpleCaseChar(c)) {
+                return add(text.subSequence(start, end).toString(), insert);
+            }
+            h = 31 * h + Character.toLowerCase(c);
+        }
+        int hash = mix(h);
+
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (hashes[id] == hash && equalsLowerCase(keys[id], text, start, end)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (id == EMPTY) {
+            if (!insert) {
+                return EMPTY;
+            }
+            String sourceWord = text.subSequence(start, end).toString();
+            id = insert(slot, sourceWord.toLowerCase(), sourceWord, hash);
+        }
+        counts[id]++;
+        return id;
+    }
+
+    private int add(String sourceWord, boolean insert) {
+        if (insert) {
+            return add(sourceWord);
+        }
+        int id = indexOf(sourceWord.toLowerCase());
+        if (id != EMPTY) {
+            counts[id]++;
+        }
+        return id;
+    }
+
+    /**
+     * Добавить одно употребление слова.
+     * @return номер слова в словаре.
+     * */
+    public int add(ConcWord word) {
+        return add(word.getWord(), word.getSourceWord(), 1);
+    }
+
+    /**
+     * Добавить все слова другого словаря вместе с количеством употреблений.
+     * */
+    public void addAll(ConcWordTable other) {
+        addAll(other, null);
+    }
+
+    /**
+     * Добавить все слова другого словаря вместе с количеством употреблений.
+     * @param idMap если не null - сюда записываются номера слов другого словаря в этом словаре.
+     * */
+    public void addAll(ConcWordTable other, int[] idMap) {
+        for (int otherId = 0; otherId < other.size; otherId++) {
+            int id = add(other.keys[otherId], other.sourceWords[otherId], other.counts[otherId]);
+            if (idMap != null) {
+                idMap[otherId] = id;
+            }
+        }
+    }
+
+    private int add(String key, String sourceWord, int occurences) {
+        int hash = hash(key);
+        int slot = findSlot(key, hash);
+        int id = slots[slot];
+        if (id == EMPTY) {
+            id = insert(slot, key, sourceWord, hash);
+        }
+        counts[id] += occurences;
+        return id;
+    }
+
+    /**
+     * Номер слова в словаре.
+     * @param word слово в нижнем регистре.
+     * @return номер слова или -1, если слова нет в словаре.
+     * */
+    public int indexOf(String word) {
+        return slots[findSlot(word, hash(word))];
+    }
+
+    public boolean contains(String word) {
+        return indexOf(word) != EMPTY;
+    }
+
+    /** Количество различных слов. */
+    public int size() {
+        return size;
+    }
+
+    /** Общее количество употреблений всех слов. */
+    public long getTotalCount() {
+        long result = 0;
+        for (int id = 0; id < size; id++) {
+            result += counts[id];
+        }
+        return result;
+    }
+
+    /**
+     * Слово по номеру. Объект создается при каждом вызове.
+     * */
+    public ConcWord getWord(int id) {
+        ConcWord word = new ConcWord(keys[id], sourceWords[id]);
+        word.setManualNumberOfOccurences(counts[id]);
+        return word;
+    }
+
+    /** Нормализованное слово по номеру. */
+    public String getKey(int id) {
+        return keys[id];
+    }
+
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Слова в алфавитном порядке (для вывода конкорданса).
+     * У каждого слова выставлено количество употреблений.
+     * */
+    public List<ConcWord> getWordsAlphabetically() {
+        List<ConcWord> result = new ArrayList<ConcWord>(size);
+        for (int id : getIdsAlphabetically()) {
+            ConcWord word = new ConcWord(keys[id], sourceWords[id], sortKeys[id]);
+            word.setManualNumberOfOccurences(counts[id]);
+            result.add(word);
+        }
+        return result;
+    }
+
+    /**
+     * Номера всех слов в алфавитном порядке (порядок {@link ConcWord#compareTo(ConcWord)}).
+     * Ключ сортировки строится для каждого слова один раз, номера сортируются
+     * поразрядно по ключам ({@link WordCollator#sort(int[], byte[][], String[])}).
+     * */
+    public int[] getIdsAlphabetically() {
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++) {
+            getSortKey(id);
+            ids[id] = id;
+        }
+        WordCollator.sort(ids, sortKeys, keys);
+        return ids;
+    }
+
+    /** Ключ сортировки слова ({@link WordCollator}), строится при первом обращении. */
+    public byte[] getSortKey(int id) {
+        if (sortKeys == null || sortKeys.length < keys.length) {
+            sortKeys = sortKeys == null ? new byte[keys.length][] : Arrays.copyOf(sortKeys, keys.length);
+        }
+        byte[] key = sortKeys[id];
+        if (key == null) {
+            key = WordCollator.getSortKey(keys[id]);
+            sortKeys[id] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Слова по убыванию количества употреблений (для счетчика словоформ).
+     * Слова с одинаковым количеством употреблений идут по алфавиту.
+     * */
+    public List<ConcWord> getWordsByFrequency() {
+        List<ConcWord> result = getWordsAlphabetically();
+        Collections.sort(result, new Comparator<ConcWord>() {
+            public int compare(ConcWord w1, ConcWord w2) {
+                int n1 = w1.getManualNumberOfOccurences();
+                int n2 = w2.getManualNumberOfOccurences();
+                return n1 < n2 ? 1 : (n1 == n2 ? 0 : -1);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Номера всех слов по убыванию количества употреблений, слова с одинаковым
+     * количеством - по алфавиту (тот же порядок, что у {@link #getWordsByFrequency()}).
+     * Объекты слов не создаются, слово и количество берутся по номеру.
+     * */
+    public int[] getIdsByFrequency() {
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++) {
+            ids[id] = id;
+        }
+        int[] buffer = new int[size];
+        mergeSort(ids, buffer, 0, size);
+        return ids;
+    }
+
+    /**
+     * Номера <code>k</code> самых частых слов, в порядке {@link #getIdsByFrequency()}.
+     * Слова отбираются за один проход через кучу из <code>k</code> элементов,
+     * остальной словарь не сортируется.
+     * */
+    public int[] getTopIdsByFrequency(int k) {
+        if (k >= size) {
+            return getIdsByFrequency();
+        }
+        // куча: в корне - слово, которое идет последним из отобранных
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int id = 0; id < size; id++) {
+            if (heapSize < k) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++);
+            } else if (k > 0 && compareByFrequency(id, heap[0]) < 0) {
+                heap[0] = id;
+                siftDown(heap, heapSize);
+            }
+        }
+        mergeSort(heap, new int[k], 0, k);
+        return heap;
+    }
+
+    /** Порядок по убыванию количества употреблений, затем по алфавиту. */
+    private int compareByFrequency(int id1, int id2) {
+        int n1 = counts[id1];
+        int n2 = counts[id2];
+        if (n1 != n2) {
+            return n1 < n2 ? 1 : -1;
+        }
+        return WordCollator.compare(getSortKey(id1), keys[id1], getSortKey(id2), keys[id2]);
+    }
+
+    private void siftUp(int[] heap, int pos) {
+        int id = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (compareByFrequency(heap[parent], id) >= 0) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = id;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        int id = heap[0];
+        int pos = 0;
+        int child;
+        while ((child = 2 * pos + 1) < heapSize) {
+            if (child + 1 < heapSize && compareByFrequency(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (compareByFrequency(heap[child], id) <= 0) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = id;
+    }
+
+    /** Сортировка слиянием номеров слов в порядке {@link #compareByFrequency(int, int)}. */
+    private void mergeSort(int[] ids, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(ids, buffer, from, middle);
+        mergeSort(ids, buffer, middle, to);
+        if (compareByFrequency(ids[middle - 1], ids[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(ids, from, buffer, from, to - from);
+        int i = from;
+        int j = middle;
+        for (int pos = from; pos < to; pos++) {
+            if (j >= to || (i < middle && compareByFrequency(buffer[i], buffer[j]) <= 0)) {
+                ids[pos] = buffer[i++];
+            } else {
+                ids[pos] = buffer[j++];
+            }
+        }
+    }
+
+    private int findSlot(String key, int hash) {
+        int slot = hash & mask;
+        int id;
+        while ((id = slots[slot]) != EMPTY) {
+            if (hashes[id] == hash && keys[id].equals(key)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int insert(int slot, String key, String sourceWord, int hash) {
+        int id = size++;
+        keys[id] = key;
+        sourceWords[id] = sourceWord;
+        hashes[id] = hash;
+        slots[slot] = id;
+        // заполнение таблицы не больше половины
+        if (size == keys.length) {
+            grow();
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = slots.length * 2;
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+
+        keys = Arrays.copyOf(keys, capacity / 2);
+        sourceWords = Arrays.copyOf(sourceWords, capacity / 2);
+        hashes = Arrays.copyOf(hashes, capacity / 2);
+        counts = Arrays.copyOf(counts, capacity / 2);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int id = 0; id < size; id++) {
+            out.writeUTF(keys[id]);
+            // исходное слово обычно совпадает с нормализованным
+            boolean sameSource = keys[id].equals(sourceWords[id]);
+            out.writeBoolean(sameSource);
+            if (!sameSource) {
+                out.writeUTF(sourceWords[id]);
+            }
+            out.writeInt(counts[id]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        init(count);
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            String sourceWord = in.readBoolean() ? key : in.readUTF();
+            add(key, sourceWord, in.readInt());
+        }
+    }
+
+    private static int hash(String key) {
+        return mix(key.hashCode());
+    }
+
+    private static int mix(int hashCode) {
+        // перемешать биты String.hashCode, чтобы линейное пробирование
+        // не собирало похожие слова в длинные цепочки
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsLowerCase(String key, CharSequence text, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Символ переводится в нижний регистр одинаково по отдельности
+     * и в составе строки (String.toLowerCase).
+     * */
+    static boolean isSimpleCaseChar(char c) {
+        return c != '\u0130' && c != '\u03a3' && !Character.isSurrogate(c);
+    }
+
+    /** В языке нет особых правил перевода в нижний регистр. */
+    static boolean isSimpleCaseLocale() {
+        String lang = Locale.getDefault().getLanguage();
+        return !"tr".equals(lang) && !"az".equals(lang) && !"lt".equals(lang);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.suno.concordance;
+
+/**
+ * Приближенный счетчик употреблений (Count-Min sketch): таблица счетчиков
+ * <code>depth x width</code>, каждое слово увеличивает по одному счетчику в каждой строке,
+ * оценка - минимум этих счетчиков.
+ * <p>Память не зависит от количества различных слов: <code>depth * width</code> счетчиков.
+ * <p>Пределы ошибки: оценка никогда не меньше точного количества, и с вероятностью
+ * не меньше <code>1 - delta</code> превышает его не более чем на <code>epsilon * N</code>,
+ * где N - общее количество добавленных употреблений. Для этого ширина таблицы
+ * <code>e / epsilon</code>, количество строк <code>ln(1 / delta)</code>.
+ * <p>Счетчики увеличиваются консервативно: только те, что равны текущей оценке.
+ * Это не ухудшает пределы ошибки и заметно уменьшает завышение для редких слов.
+ * */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+    private long total = 0;
+
+    /**
+     * @param epsilon допустимое завышение оценки, доля от общего количества употреблений.
+     * @param delta вероятность превысить допустимое завышение.
+     * */
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon и delta должны быть в интервале (0, 1)");
+        }
+        width = (int) Math.ceil(Math.E / epsilon);
+        depth = (int) Math.ceil(Math.log(1 / delta));
+        counters = new long[depth][width];
+    }
+
+    /**
+     * Добавить одно употребление.
+     * @param hash 64-битный хеш слова.
+     * @return оценка количества употреблений с учетом добавленного.
+     * */
+    public long add(long hash) {
+        total++;
+        long estimate = estimate(hash);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            long[] rowCounters = counters[row];
+            int column = column(h1, h2, row);
+            if (rowCounters[column] == estimate) {
+                rowCounters[column]++;
+            }
+        }
+        return estimate + 1;
+    }
+
+    /**
+     * Оценка количества употреблений.
+     * @param hash 64-битный хеш слова.
+     * */
+    public long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long result = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            result = Math.min(result, counters[row][column(h1, h2, row)]);
+        }
+        return result;
+    }
+
+    /** Общее количество добавленных употреблений. */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Столбец строки: двойное хеширование из двух половин хеша. */
+    private int column(int h1, int h2, int row) {
+        return ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+    }
+}
@@ -0,0 +1,148 @@
+package ru.suno.concordance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Поиск самых частых слов в ограниченной памяти: приближенные количества
+ * употреблений всех слов ({@link CountMinSketch}) и список кандидатов в частые слова.
+ * <p>Слово попадает в кандидаты, когда его оценка превышает порог. Когда кандидатов
+ * становится вдвое больше заданного, остаются только кандидаты с наибольшими оценками,
+ * а порог поднимается до наименьшей из оставшихся оценок. Оценка не меньше точного
+ * количества, поэтому слово, которое встречается чаще итогового порога
+ * ({@link #getThreshold()}), обязательно есть среди кандидатов.
+ * <p>Количества кандидатов - оценки, точные количества нужно посчитать вторым
+ * проходом по тексту только для кандидатов (см. {@link #getCandidates()}).
+ * <p>Память: счетчики {@link CountMinSketch} плюс не больше <code>2 * candidateCount</code>
+ * кандидатов, независимо от объема текста и количества различных слов.
+ * */
+public class FrequentWordSketch {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final CountMinSketch sketch;
+    private final int candidateCount;
+
+    /** Кандидаты (слова в нижнем регистре) и их оценки. */
+    private final Map<String, Long> candidates = new HashMap<String, Long>();
+
+    /** Оценка, которую должно превысить слово, чтобы попасть в кандидаты. */
+    private long threshold = 0;
+
+    private final boolean simpleCaseLocale = ConcWordTable.isSimpleCaseLocale();
+
+    /**
+     * @param aCandidateCount сколько кандидатов в частые слова хранить.
+     * @param epsilon допустимое завышение оценки, см. {@link CountMinSketch}.
+     * @param delta вероятность превысить допустимое завышение, см. {@link CountMinSketch}.
+     * */
+    public FrequentWordSketch(int aCandidateCount, double epsilon, double delta) {
+        if (aCandidateCount <= 0) {
+            throw new IllegalArgumentException("Количество кандидатов должно быть больше 0");
+        }
+        candidateCount = aCandidateCount;
+        sketch = new CountMinSketch(epsilon, delta);
+    }
+
+    /**
+     * Добавить одно употребление слова, заданного частью текста. Строка создается,
+     * только если оценка слова превышает порог.
+     * */
+    public void add(CharSequence text, int start, int end) {
+        String key = null;
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end && key == null; i++) {
+            char c = text.charAt(i);
+            if (!simpleCaseLocale || !ConcWordTable.isSimpleCaseChar(c)) {
+                // регистр зависит от соседних символов - хеш по строке
+                key = text.subSequence(start, end).toString().toLowerCase();
+            } else {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+            }
+        }
+        if (key != null) {
+            hash = FNV_OFFSET;
+            for (int i = 0; i < key.length(); i++) {
+                hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        long estimate = sketch.add(hash);
+        if (estimate > threshold) {
+            if (key == null) {
+                key = text.subSequence(start, end).toString().toLowerCase();
+            }
+            candidates.put(key, estimate);
+            if (candidates.size() > 2 * candidateCount) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * Кандидаты в частые слова (не больше заданного количества), без употреблений:
+     * словарь для второго, точного прохода ({@link ConcWordTable#increment(CharSequence, int, int)}).
+     * */
+    public ConcWordTable getCandidates() {
+        if (candidates.size() > candidateCount) {
+            prune();
+        }
+        ConcWordTable result = new ConcWordTable(candidates.size());
+        for (String key : candidates.keySet()) {
+            result.add(key, 0);
+        }
+        return result;
+    }
+
+    /** Оценка количества употреблений слова. */
+    public long getEstimate(String word) {
+        String key = word.toLowerCase();
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return sketch.estimate(hash);
+    }
+
+    /**
+     * Порог кандидатов: слово, которое встречается чаще, обязательно есть среди кандидатов.
+     * */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Наибольшее завышение оценки (с вероятностью <code>1 - delta</code>):
+     * <code>epsilon * N</code>.
+     * */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / sketch.getWidth() * sketch.getTotal());
+    }
+
+    public CountMinSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * Оставить кандидатов с наибольшими оценками и поднять порог.
+     * Кандидаты с оценкой, равной порогу, тоже удаляются, поэтому их остается
+     * не больше заданного количества.
+     * */
+    private void prune() {
+        long[] estimates = new long[candidates.size()];
+        int i = 0;
+        for (Long estimate : candidates.values()) {
+            estimates[i++] = estimate;
+        }
+        Arrays.sort(estimates);
+        threshold = Math.max(threshold, estimates[estimates.length - candidateCount - 1]);
+        for (Iterator<Long> it = candidates.values().iterator(); it.hasNext();) {
+            if (it.next() <= threshold) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package ru.suno.concordance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import ru.suno.concordance.parser.WordTokenizer;
+
+/**
+ * Таблица предложений, хранящаяся по столбцам: для каждого предложения -
+ * начало и конец в тексте страницы, номер страницы и признаки.
+ * <p>Предложения идут в порядке следования в тексте, поэтому предыдущее и следующее
+ * предложения - соседние номера, признаками отмечается только наличие связи.
+ * Отдельных объектов на каждое предложение нет, {@link ConcSentence} - легкое
+ * представление строки таблицы, создаваемое по требованию.
+ * <p>Слова предложения можно хранить номерами слов словаря ({@link ConcWordTable}),
+ * упакованными в байты (varint): 1 байт для первых 128 слов словаря, 2 байта -
+ * для первых 16384 и т.д.
+ * */
+public class SentenceTable implements Serializable {
+
+    private static final long serialVersionUID = 5662770715825274489L;
+
+    /** Предложение связано с предыдущим. */
+    public static final int HAS_PREV = 1;
+    /** Предложение связано со следующим. */
+    public static final int HAS_NEXT = 2;
+    /** Предложение разорвано (продолжается на соседней странице). */
+    public static final int BROKEN = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // при сохранении массивы записываются без свободного места в конце
+
+    // страницы
+    private transient CharSequence[] pageTexts = new CharSequence[INITIAL_CAPACITY];
+    private transient ConcRef[] pageRefs = new ConcRef[INITIAL_CAPACITY];
+    private int pageCount = 0;
+
+    // предложения
+    private transient int[] begins = new int[INITIAL_CAPACITY];
+    private transient int[] ends = new int[INITIAL_CAPACITY];
+    private transient int[] pages = new int[INITIAL_CAPACITY];
+    private transient byte[] flags = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // номера слов предложений
+    private transient byte[] tokenBytes = new byte[INITIAL_CAPACITY * 8];
+    private int tokenLength = 0;
+    private transient int[] tokenStarts = new int[INITIAL_CAPACITY];
+    /** Количество предложений, для которых заданы номера слов. */
+    private int tokenizedCount = 0;
+
+    /**
+     * Добавить страницу, на которой находятся следующие предложения.
+     * @param text текст страницы, в котором отсчитываются начало и конец предложений.
+     * @return номер страницы.
+     * */
+    public int addPage(CharSequence text, ConcRef ref) {
+        if (pageCount == pageTexts.length) {
+            pageTexts = Arrays.copyOf(pageTexts, pageCount * 2);
+            pageRefs = Arrays.copyOf(pageRefs, pageCount * 2);
+        }
+        pageTexts[pageCount] = text;
+        pageRefs[pageCount] = ref;
+        return pageCount++;
+    }
+
+    /**
+     * Добавить предложение в конец таблицы, без связей и признаков.
+     * @return номер предложения.
+     * */
+    public int addSentence(int page, int begin, int end) {
+        if (size == begins.length) {
+            grow(size * 2);
+        }
+        begins[size] = begin;
+        ends[size] = end;
+        pages[size] = page;
+        flags[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Задать номера слов предложения. Номера слов задаются по порядку предложений.
+     * @param wordIds номера слов, используются первые <code>count</code>.
+     * */
+    public void setTokens(int id, int[] wordIds, int count) {
+        if (id != tokenizedCount) {
+            throw new IllegalStateException("Слова предложения " + id + " заданы не по порядку");
+        }
+        if (tokenLength + count * 5 > tokenBytes.length) {
+            tokenBytes = Arrays.copyOf(tokenBytes, Math.max(tokenBytes.length * 2, tokenLength + count * 5));
+        }
+        tokenStarts[id] = tokenLength;
+        for (int i = 0; i < count; i++) {
+            writeToken(wordIds[i]);
+        }
+        tokenizedCount++;
+    }
+
+    /** Номера слов предложения. */
+    public int[] getTokens(int id) {
+        int pos = tokenStart(id);
+        int end = tokenEnd(id);
+        int[] result = new int[end - pos];
+        int count = 0;
+        while (pos < end) {
+            int wordId = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = tokenBytes[pos++];
+                wordId |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            result[count++] = wordId;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Есть ли в предложении слово с таким номером.
+     * */
+    public boolean containsToken(int id, int wordId) {
+        int pos = tokenStart(id);
+        int end = tokenEnd(id);
+        while (pos < end) {
+            int token = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = tokenBytes[pos++];
+                token |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (token == wordId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавить в конец все страницы и предложения другой таблицы.
+     * Номера предложений другой таблицы сдвигаются на количество предложений в этой.
+     * */
+    public void addAll(SentenceTable other) {
+        addAll(other, null);
+    }
+
+    /**
+     * Добавить в конец все страницы и предложения другой таблицы.
+     * Номера предложений другой таблицы сдвигаются на количество предложений в этой.
+     * @param tokenMap номера слов словаря другой таблицы в словаре этой таблицы,
+     * null - номера слов не переносятся.
+     * */
+    public void addAll(SentenceTable other, int[] tokenMap) {
+        if (tokenMap != null && (tokenizedCount != size || other.tokenizedCount != other.size)) {
+            throw new IllegalStateException("Слова заданы не для всех предложений");
+        }
+        int base = size;
+        int pageBase = pageCount;
+        for (int page = 0; page < other.pageCount; page++) {
+            addPage(other.pageTexts[page], other.pageRefs[page]);
+        }
+        if (size + other.size > begins.length) {
+            grow(Math.max(begins.length * 2, size + other.size));
+        }
+        System.arraycopy(other.begins, 0, begins, size, other.size);
+        System.arraycopy(other.ends, 0, ends, size, other.size);
+        System.arraycopy(other.flags, 0, flags, size, other.size);
+        for (int id = 0; id < other.size; id++) {
+            pages[size + id] = pageBase + other.pages[id];
+        }
+        size += other.size;
+
+        if (tokenMap != null) {
+            for (int otherId = 0; otherId < other.size; otherId++) {
+                int[] otherTokens = other.getTokens(otherId);
+                for (int i = 0; i < otherTokens.length; i++) {
+                    otherTokens[i] = tokenMap[otherTokens[i]];
+                }
+                setTokens(base + otherId, otherTokens, otherTokens.length);
+            }
+        }
+    }
+
+    /** Количество предложений. */
+    public int size() {
+        return size;
+    }
+
+    /** Представление предложения для вывода. */
+    public ConcSentence getSentence(int id) {
+        checkId(id);
+        return new ConcSentence(this, id);
+    }
+
+    /**
+     * Связать предложение с предыдущим.
+     * */
+    public void link(int id) {
+        checkId(id);
+        if (id == 0) {
+            throw new IllegalArgumentException("Нет предыдущего предложения");
+        }
+        flags[id - 1] |= HAS_NEXT;
+        flags[id] |= HAS_PREV;
+    }
+
+    /** Номер предыдущего предложения, -1 - предложение не связано с предыдущим. */
+    public int getPrevious(int id) {
+        return (flags[id] & HAS_PREV) != 0 ? id - 1 : -1;
+    }
+
+    /** Номер следующего предложения, -1 - предложение не связано со следующим. */
+    public int getNext(int id) {
+        return (flags[id] & HAS_NEXT) != 0 ? id + 1 : -1;
+    }
+
+    public boolean isBroken(int id) {
+        return (flags[id] & BROKEN) != 0;
+    }
+
+    public void setBroken(int id, boolean isBroken) {
+        checkId(id);
+        if (isBroken) {
+            flags[id] |= BROKEN;
+        } else {
+            flags[id] &= ~BROKEN;
+        }
+    }
+
+    public ConcRef getReference(int id) {
+        return pageRefs[pages[id]];
+    }
+
+    /** Начало предложения в тексте страницы. */
+    public int getBegin(int id) {
+        return begins[id];
+    }
+
+    /** Конец предложения в тексте страницы. */
+    public int getEnd(int id) {
+        return ends[id];
+    }
+
+    /** Текст предложения, копируется из текста страницы. */
+    public String getSourceSentence(int id) {
+        return pageTexts[pages[id]].subSequence(begins[id], ends[id]).toString();
+    }
+
+    /**
+     * Разбить предложение на слова и знаки препинания без создания строк.
+     * Знаки препинания - отдельные слова, остальные слова разделены пробелами.
+     * */
+    public void tokenize(int id, WordTokenizer.TokenHandler handler) {
+        CharSequence text = pageTexts[pages[id]];
+        int end = ends[id];
+        int pos = begins[id];
+        while (pos < end) {
+            char c = text.charAt(pos);
+            if (isPunctChar(c)) {
+                handler.token(text, pos, pos + 1);
+                pos++;
+            } else if (isSpace(c)) {
+                pos++;
+            } else {
+                int wordStart = pos;
+                do {
+                    pos++;
+                } while (pos < end && !isSpace(c = text.charAt(pos)) && !isPunctChar(c));
+                handler.token(text, wordStart, pos);
+            }
+        }
+    }
+
+    /** Знаки, которые {@link ru.suno.concordance.parser.StringFilter#replacePunctChars(String)} отделяет пробелами. */
+    private static boolean isPunctChar(char c) {
+        return c == '?' || c == '!' || c == '.' || c == ',' || c == ';' || c == ':';
+    }
+
+    /** Разделители слов StringTokenizer по умолчанию. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private void writeToken(int wordId) {
+        while ((wordId & ~0x7F) != 0) {
+            tokenBytes[tokenLength++] = (byte) ((wordId & 0x7F) | 0x80);
+            wordId >>>= 7;
+        }
+        tokenBytes[tokenLength++] = (byte) wordId;
+    }
+
+    private int tokenStart(int id) {
+        if (id >= tokenizedCount) {
+            checkId(id);
+            throw new IllegalStateException("Слова предложения " + id + " не заданы");
+        }
+        return tokenStarts[id];
+    }
+
+    private int tokenEnd(int id) {
+        return id + 1 < tokenizedCount ? tokenStarts[id + 1] : tokenLength;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(Arrays.copyOf(pageTexts, pageCount));
+        out.writeObject(Arrays.copyOf(pageRefs, pageCount));
+        out.writeObject(Arrays.copyOf(begins, size));
+        out.writeObject(Arrays.copyOf(ends, size));
+        out.writeObject(Arrays.copyOf(pages, size));
+        out.writeObject(Arrays.copyOf(flags, size));
+        out.writeObject(Arrays.copyOf(tokenBytes, tokenLength));
+        out.writeObject(Arrays.copyOf(tokenStarts, tokenizedCount));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int pageCapacity = Math.max(pageCount, INITIAL_CAPACITY);
+        pageTexts = Arrays.copyOf((CharSequence[]) in.readObject(), pageCapacity);
+        pageRefs = Arrays.copyOf((ConcRef[]) in.readObject(), pageCapacity);
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        begins = Arrays.copyOf((int[]) in.readObject(), capacity);
+        ends = Arrays.copyOf((int[]) in.readObject(), capacity);
+        pages = Arrays.copyOf((int[]) in.readObject(), capacity);
+        flags = Arrays.copyOf((byte[]) in.readObject(), capacity);
+        tokenBytes = (byte[]) in.readObject();
+        tokenStarts = Arrays.copyOf((int[]) in.readObject(), capacity);
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Sentence: " + id + ", Size: " + size);
+        }
+    }
+
+    private void grow(int capacity) {
+        begins = Arrays.copyOf(begins, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        pages = Arrays.copyOf(pages, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        tokenStarts = Arrays.copyOf(tokenStarts, capacity);
+    }
+}
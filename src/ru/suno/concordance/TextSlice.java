@@ -0,0 +1,58 @@
+package ru.suno.concordance;
+
+import java.io.Serializable;
+
+/**
+ * Часть общего текста [start, end) без копирования символов.
+ * <p>Страницы и предложения ссылаются на текст документа через такие части,
+ * поэтому текст хранится в памяти один раз. Строка создается только
+ * при вызове {@link #toString()}.
+ * */
+public final class TextSlice implements CharSequence, Serializable {
+
+    private static final long serialVersionUID = -9059135350461335243L;
+
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+
+    public TextSlice(CharSequence i_text, int i_start, int i_end) {
+        if (i_start < 0 || i_end > i_text.length() || i_start > i_end) {
+            throw new IndexOutOfBoundsException("[" + i_start + ", " + i_end + ") of " + i_text.length());
+        }
+        // часть части ссылается сразу на исходный текст
+        if (i_text instanceof TextSlice) {
+            TextSlice slice = (TextSlice) i_text;
+            text = slice.text;
+            start = slice.start + i_start;
+            end = slice.start + i_end;
+        } else {
+            text = i_text;
+            start = i_start;
+            end = i_end;
+        }
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return text.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int i_start, int i_end) {
+        return new TextSlice(this, i_start, i_end);
+    }
+
+    @Override
+    public String toString() {
+        return text.subSequence(start, end).toString();
+    }
+}
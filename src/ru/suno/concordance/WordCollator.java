@@ -0,0 +1,205 @@
+package ru.suno.concordance;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Алфавитный порядок слов конкорданса по правилам русского языка ({@link Collator} для ru):
+ * ё идет вместе с е, латиница - перед кириллицей, регистр и диакритические знаки
+ * учитываются, только если буквы совпадают, дефис и подобные знаки не учитываются.
+ * <p>Для слова один раз строится двоичный ключ сортировки ({@link #getSortKey(String)}),
+ * дальше слова сравниваются и сортируются по ключам без обращения к Collator.
+ * Слова с равными ключами упорядочиваются по самому слову, так что порядок полный.
+ * <p>Ключ строки из простых символов (цифры, строчные латинские и русские буквы)
+ * собирается из заранее посчитанных весов символов, без Collator, и совпадает
+ * с ключом Collator байт в байт: веса первичные, затем вторичные, затем третичные,
+ * по два байта на вес, части разделены двумя нулевыми байтами.
+ * */
+public final class WordCollator {
+
+    /** Меньшие части сортируются вставками. */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /** Collator не потокобезопасен: у каждого потока свой. */
+    private static final ThreadLocal<Collator> COLLATOR = new ThreadLocal<Collator>() {
+        @Override
+        protected Collator initialValue() {
+            return createCollator();
+        }
+    };
+
+    /** Простые символы ищутся среди символов до этого. */
+    private static final char SIMPLE_LIMIT = '\u0460';
+
+    /** Веса простых символов: первичный, вторичный, третичный. 0 - символ не простой. */
+    private static final char[] PRIMARY = new char[SIMPLE_LIMIT];
+    private static final char[] SECONDARY = new char[SIMPLE_LIMIT];
+    private static final char[] TERTIARY = new char[SIMPLE_LIMIT];
+
+    static {
+        findSimpleChars();
+    }
+
+    private WordCollator() {
+    }
+
+    /** Ключ сортировки слова. Ключи сравниваются побайтно, байты - без знака. */
+    public static byte[] getSortKey(String word) {
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c >= SIMPLE_LIMIT || PRIMARY[c] == 0) {
+                return COLLATOR.get().getCollationKey(word).toByteArray();
+            }
+        }
+        byte[] key = new byte[6 * length + 4];
+        int secondary = 2 * length + 2;
+        int tertiary = 4 * length + 4;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            putChar(key, 2 * i, PRIMARY[c]);
+            putChar(key, secondary + 2 * i, SECONDARY[c]);
+            putChar(key, tertiary + 2 * i, TERTIARY[c]);
+        }
+        return key;
+    }
+
+    private static void putChar(byte[] key, int pos, char c) {
+        key[pos] = (byte) (c >>> 8);
+        key[pos + 1] = (byte) c;
+    }
+
+    private static Collator createCollator() {
+        Collator collator = Collator.getInstance(new Locale("ru"));
+        collator.setStrength(Collator.TERTIARY);
+        return collator;
+    }
+
+    /**
+     * Найти простые символы: у символа по одному ненулевому весу каждого уровня,
+     * и ключ любых двух простых символов собирается из их весов (символы не образуют
+     * сочетаний с особым порядком). Веса берутся у Collator, поэтому ключи совпадают
+     * с ключами Collator и при других правилах сравнения.
+     * */
+    private static void findSimpleChars() {
+        Collator collator = createCollator();
+        StringBuilder candidates = new StringBuilder();
+        for (char c = '0'; c <= '9'; c++) {
+            candidates.append(c);
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            candidates.append(c);
+        }
+        for (char c = '\u0430'; c < SIMPLE_LIMIT; c++) {
+            candidates.append(c);
+        }
+
+        for (int i = 0; i < candidates.length(); i++) {
+            char c = candidates.charAt(i);
+            byte[] key = collator.getCollationKey(String.valueOf(c)).toByteArray();
+            if (key.length == 10 && getChar(key, 2) == 0 && getChar(key, 6) == 0
+                    && getChar(key, 0) != 0 && getChar(key, 4) != 0 && getChar(key, 8) != 0) {
+                PRIMARY[c] = getChar(key, 0);
+                SECONDARY[c] = getChar(key, 4);
+                TERTIARY[c] = getChar(key, 8);
+            }
+        }
+
+        for (int i = 0; i < candidates.length(); i++) {
+            char c1 = candidates.charAt(i);
+            for (int j = 0; j < candidates.length() && PRIMARY[c1] != 0; j++) {
+                char c2 = candidates.charAt(j);
+                if (PRIMARY[c2] == 0) {
+                    continue;
+                }
+                String pair = new String(new char[] {c1, c2});
+                if (!Arrays.equals(getSortKey(pair), collator.getCollationKey(pair).toByteArray())) {
+                    PRIMARY[c1] = 0;
+                    PRIMARY[c2] = 0;
+                }
+            }
+        }
+    }
+
+    private static char getChar(byte[] key, int pos) {
+        return (char) (((key[pos] & 0xFF) << 8) | (key[pos + 1] & 0xFF));
+    }
+
+    /** Сравнить ключи сортировки. */
+    public static int compareKeys(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int b1 = key1[i] & 0xFF;
+            int b2 = key2[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return key1.length - key2.length;
+    }
+
+    /** Сравнить слова по ключам сортировки, при равных ключах - по самим словам. */
+    public static int compare(byte[] key1, String word1, byte[] key2, String word2) {
+        int result = compareKeys(key1, key2);
+        return result != 0 ? result : word1.compareTo(word2);
+    }
+
+    /**
+     * Отсортировать номера слов по алфавиту: поразрядная сортировка по байтам ключей,
+     * начиная со старшего.
+     * @param ids номера слов, сортируются на месте.
+     * @param keys ключи сортировки слов по номеру.
+     * @param words слова по номеру - для слов с равными ключами.
+     * */
+    public static void sort(int[] ids, byte[][] keys, String[] words) {
+        radixSort(ids, new int[ids.length], 0, ids.length, 0, keys, words);
+    }
+
+    /** Отсортировать часть, в которой у всех ключей совпадают первые <code>depth</code> байт. */
+    private static void radixSort(int[] ids, int[] buffer, int from, int to, int depth,
+            byte[][] keys, String[] words) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            insertionSort(ids, from, to, keys, words);
+            return;
+        }
+        // корзина 0 - ключ кончился, 1 + b - следующий байт b
+        int[] starts = new int[258];
+        for (int i = from; i < to; i++) {
+            starts[bucket(keys[ids[i]], depth) + 1]++;
+        }
+        for (int b = 0; b < 257; b++) {
+            starts[b + 1] += starts[b];
+        }
+        int[] fill = new int[257];
+        System.arraycopy(starts, 0, fill, 0, 257);
+        for (int i = from; i < to; i++) {
+            buffer[from + fill[bucket(keys[ids[i]], depth)]++] = ids[i];
+        }
+        System.arraycopy(buffer, from, ids, from, to - from);
+
+        // кончившиеся ключи равны между собой
+        insertionSort(ids, from, from + starts[1], keys, words);
+        for (int b = 1; b < 257; b++) {
+            if (starts[b + 1] - starts[b] > 1) {
+                radixSort(ids, buffer, from + starts[b], from + starts[b + 1], depth + 1, keys, words);
+            }
+        }
+    }
+
+    private static int bucket(byte[] key, int depth) {
+        return depth < key.length ? 1 + (key[depth] & 0xFF) : 0;
+    }
+
+    private static void insertionSort(int[] ids, int from, int to, byte[][] keys, String[] words) {
+        for (int i = from + 1; i < to; i++) {
+            int id = ids[i];
+            int j = i - 1;
+            while (j >= from && compare(keys[ids[j]], words[ids[j]], keys[id], words[id]) > 0) {
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            ids[j + 1] = id;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ru.suno.concordance.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import ru.suno.concordance.utils.NameCountProcessor;
+import ru.suno.concordance.utils.PagesProcessor;
+import ru.suno.concordance.utils.ProcessingListener;
+import ru.suno.concordance.utils.ProcessingProgress;
+
+/**
+ * Составление конкорданса или подсчет словоформ из командной строки, без интерфейса пользователя.
+ * <pre>
+ * java ru.suno.concordance.cli.ConcordanceCli -out DIR [-name NAME] [-threads N]
+ *      [-memory MB [-tmp DIR]] [-count [-top K] [-approx]] [-verbose] FILE|DIR|GLOB...
+ * </pre>
+ * Исходные файлы задаются именами, каталогами (все файлы каталога) или шаблонами
+ * (например, <code>texts/*.doc</code>, <code>texts/**&#47;*.doc</code>). Файлы каждого
+ * шаблона обрабатываются в порядке имен.
+ * <p>Ход обработки выводится в консоль не чаще раза в секунду, журнал обработки
+ * (по строке на файл) - только с <code>-verbose</code>.
+ * <p>С <code>-memory</code> словарь и индекс конкорданса строятся во внешней памяти
+ * (во временных файлах в каталоге <code>-tmp</code>) и занимают примерно заданный
+ * объем памяти - для текстов, индекс которых не помещается в память.
+ * Код завершения 0 - успешно, 1 - ошибка обработки, 2 - неверные параметры.
+ * */
+public class ConcordanceCli {
+
+    /** Как часто выводить ход обработки, мс. */
+    private static final long PROGRESS_INTERVAL = 1000;
+
+    private static final String USAGE =
+            "Usage: ConcordanceCli -out DIR [-name NAME] [-threads N] [-memory MB [-tmp DIR]] [-count [-top K] [-approx]] [-verbose] FILE|DIR|GLOB...";
+
+    /** Выводит ход обработки в консоль. */
+    private static class ConsoleListener implements ProcessingListener {
+
+        private final boolean verbose;
+        private final ProcessingProgress progress = new ProcessingProgress();
+        private long lastReport = 0;
+        private volatile boolean failed = false;
+
+        ConsoleListener(boolean aVerbose) {
+            verbose = aVerbose;
+        }
+
+        public void stageStarted(String stage) {
+            progress.startStage(stage);
+            lastReport = System.currentTimeMillis();
+        }
+
+        public void stageFinished(String stage) {
+            System.out.println(progress);
+        }
+
+        public void documentProcessed(File document, long bytes, long words, int sentences) {
+            progress.addDocument(bytes, words, sentences);
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= PROGRESS_INTERVAL) {
+                lastReport = now;
+                System.out.println(progress);
+            }
+        }
+
+        public void message(String message) {
+            if (verbose) {
+                System.out.println(message);
+            }
+        }
+
+        public void error(String message, Throwable ex) {
+            failed = true;
+            System.err.println(message);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Выполнить обработку.
+     * @return код завершения.
+     * */
+    public static int run(String[] args) {
+        String outDir = null;
+        String name = "concordance";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int memory = 0;
+        String tmpDir = null;
+        boolean count = false;
+        int top = 0;
+        boolean approximate = false;
+        boolean verbose = false;
+        List<String> patterns = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("-out".equals(arg)) {
+                    outDir = args[++i];
+                } else if ("-name".equals(arg)) {
+                    name = args[++i];
+                } else if ("-threads".equals(arg)) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("-memory".equals(arg)) {
+                    memory = Integer.parseInt(args[++i]);
+                } else if ("-tmp".equals(arg)) {
+                    tmpDir = args[++i];
+                } else if ("-count".equals(arg)) {
+                    count = true;
+                } else if ("-top".equals(arg)) {
+                    top = Integer.parseInt(args[++i]);
+                } else if ("-approx".equals(arg)) {
+                    approximate = true;
+                } else if ("-verbose".equals(arg)) {
+                    verbose = true;
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    patterns.add(arg);
+                }
+            }
+            if (outDir == null || patterns.isEmpty() || threads < 1 || top < 0 || memory < 0) {
+                throw new IllegalArgumentException("Output directory and source files are required");
+            }
+        } catch (RuntimeException ex) {
+            // нет значения параметра, неверное число, неизвестный параметр
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        List<File> srcList;
+        try {
+            srcList = findFiles(patterns);
+        } catch (IOException ex) {
+            System.err.println("Cannot list source files: " + ex.getMessage());
+            return 2;
+        }
+        if (srcList.isEmpty()) {
+            System.err.println("No source files found");
+            return 2;
+        }
+        File out = new File(outDir);
+        if (!out.isDirectory() && !out.mkdirs()) {
+            System.err.println("Cannot create output directory " + out);
+            return 2;
+        }
+
+        ConsoleListener listener = new ConsoleListener(verbose);
+        String result;
+        if (count) {
+            NameCountProcessor processor = new NameCountProcessor();
+            processor.setDocPath(out.getPath());
+            processor.setResultName(name);
+            processor.setTopCount(top);
+            processor.setApproximate(approximate);
+            result = processor.processAllDocuments(srcList, listener);
+        } else {
+            PagesProcessor processor = new PagesProcessor(listener);
+            processor.setDocPath(out.getPath());
+            processor.setResultName(name);
+            processor.setThreadCount(threads);
+            processor.setMemoryBudget(memory * 1024L * 1024L);
+            processor.setTempPath(tmpDir);
+            result = processor.processAllDocuments(srcList);
+        }
+        if (listener.failed) {
+            return 1;
+        }
+        System.out.println(result);
+        return 0;
+    }
+
+    /**
+     * Исходные файлы по именам, каталогам и шаблонам, без повторов.
+     * */
+    static List<File> findFiles(List<String> patterns) throws IOException {
+        Set<File> result = new LinkedHashSet<File>();
+        for (String pattern : patterns) {
+            File file = new File(pattern);
+            List<File> found = new ArrayList<File>();
+            if (file.isFile()) {
+                found.add(file);
+            } else if (file.isDirectory()) {
+                File[] files = file.listFiles();
+                if (files != null) {
+                    for (File f : files) {
+                        if (f.isFile() && !f.isHidden()) {
+                            found.add(f);
+                        }
+                    }
+                }
+            } else {
+                found.addAll(findByGlob(pattern));
+            }
+            Collections.sort(found);
+            result.addAll(found);
+        }
+        return new ArrayList<File>(result);
+    }
+
+    /**
+     * Файлы по шаблону: обход начинается с каталога до первого элемента пути с символами шаблона.
+     * */
+    private static List<File> findByGlob(String pattern) throws IOException {
+        final List<File> result = new ArrayList<File>();
+        int wildcard = indexOfWildcard(pattern);
+        int separator = Math.max(pattern.lastIndexOf('/', wildcard), pattern.lastIndexOf(File.separatorChar, wildcard));
+        Path base;
+        if (separator < 0) {
+            base = Paths.get(".");
+        } else if (separator == 0) {
+            base = Paths.get(pattern.substring(0, 1));
+        } else {
+            base = Paths.get(pattern.substring(0, separator));
+        }
+        if (!Files.isDirectory(base)) {
+            return result;
+        }
+
+        // шаблон без каталога сравнивается с путем относительно текущего каталога
+        final String glob = separator < 0 ? "./" + pattern : pattern;
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && matcher.matches(file)) {
+                    result.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return pattern.length();
+    }
+}
@@ -1,251 +1,479 @@
-package ru.suno.concordance.dlg;
-
-import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
-import java.awt.Insets;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.io.File;
-import java.util.List;
-
-import javax.swing.JButton;
-import javax.swing.JComponent;
-import javax.swing.JDialog;
-import javax.swing.JFileChooser;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
-import javax.swing.UIManager;
-import javax.swing.filechooser.FileFilter;
-
-import ru.suno.concordance.ResourceStrings;
-import ru.suno.concordance.utils.NameCountProcessor;
-import ru.suno.concordance.utils.PagesProcessor;
-
-public class FileSelectDialog extends JFrame implements ActionListener {
-
-	private static final long serialVersionUID = 1368289293343399710L;
-
-	private JButton browseButton; 
-	private JButton createSlovoformButton; 
-	private JButton startProcessingButton; 
-	private JPanel panel;
-
-	private JFileChooser chooser = new JFileChooser();
-	private JScrollPane logScrollPane;
-	private JTextArea log;
-	private List<File> fileList;
-
-	public FileSelectDialog() {
-		super();
-
-		browseButton.setText(ResourceStrings.getInstance().SELECT_SOURCE_FILE);
-		createSlovoformButton.setText(ResourceStrings.getInstance().CREATE_SLOVOFORMCOUNTER);
-		startProcessingButton.setText(ResourceStrings.getInstance().CREATE_CONCORDANCE);
-
-		setContentPane(panel);
-		setMinimumSize(new Dimension(660, 400));
-
-		setTitle(ResourceStrings.getInstance().CONCORDANCE_DIALOGTITLE);
-
-		chooser.setMultiSelectionEnabled(true);
-		chooser.addChoosableFileFilter(new FileFilter() {
-			@Override
-			public boolean accept(File f) {
-				if (f.getName().endsWith(".doc") || f.isDirectory()) {
-					return true;
-				} else {
-					return false;
-				}
-			}
-
-			@Override
-			public String getDescription() {
-				return ResourceStrings.getInstance().WORD_FILES;
-			}
-		});
-
-		browseButton.addActionListener(this);
-		createSlovoformButton.addActionListener(this);
-		startProcessingButton.addActionListener(this);
-	}
-
-	@Override
-	public void actionPerformed(ActionEvent event) {
-		if (event.getSource() == browseButton) {
-			int retval = chooser.showOpenDialog(FileSelectDialog.this);
-			if (retval == JFileChooser.APPROVE_OPTION) {
-				log.replaceRange(null, 0, log.getText().length());
-				File[] selFiles = chooser.getSelectedFiles();
-				fileList = java.util.Arrays.asList(selFiles);
-
-				for (File file : fileList) {
-					log.append(file.getName() + "\n");
-				}
-
-				log.repaint();
-			}
-
-		} else if (event.getSource() == startProcessingButton) {
-			// очистить лог
-			log.replaceRange(null, 0, log.getText().length());
-			final JFileChooser saveChooser = new JFileChooser();
-			saveChooser.setMultiSelectionEnabled(false);
-
-			if (saveChooser.showSaveDialog(FileSelectDialog.this) == JFileChooser.APPROVE_OPTION) {
-				// Начать составление конкорданса
-				
-				final FileSelectDialog instance = this;
-				if (fileList != null && fileList.size() > 0) {
-					log.append("\nЗапуск системы обработки текста...\n");
-					log.repaint();
-					new Thread(new Runnable() {
-						@Override
-						public void run() {
-							PagesProcessor pr = new PagesProcessor(instance);
-							pr.setResultName(saveChooser.getSelectedFile().getName());
-							pr.setDocPath(saveChooser.getCurrentDirectory().getPath());
-
-							// TODO: replace this argument with action listener
-							pr.processAllDocuments(fileList);
-							log.append("Обработка завершена\n");
-						}						
-					}).start();
-				}
-			}
-		} else if (event.getSource() == createSlovoformButton) {
-			// очистить лог
-			log.replaceRange(null, 0, log.getText().length());
-			JFileChooser saveChooser = new JFileChooser();
-			saveChooser.setMultiSelectionEnabled(false);
-
-			if (saveChooser.showSaveDialog(FileSelectDialog.this) == JFileChooser.APPROVE_OPTION) {
-				if (fileList != null && fileList.size() > 0) {
-					log.append("\nЗапуск системы составления словоформ...\n");
-					log.repaint();
-					NameCountProcessor pr = new NameCountProcessor();
-					pr.setResultName(saveChooser.getSelectedFile().getName());
-					pr.setDocPath(saveChooser.getCurrentDirectory().getPath());
-
-					// TODO: replace this argument with action listener
-					pr.processAllDocuments(fileList, this);
-					log.append("Словоформы составлены\n");
-				}
-			}
-		}
-	}
-
-	public void logMessage(String msg) {
-		log.append(msg + "\n");
-	}
-
-	private static void createAndShowGUI() {
-		FileSelectDialog dlg = new FileSelectDialog();
-		dlg.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-		dlg.setVisible(true);
-	}
-
-	/**
-	 * @param args
-	 */
-	public static void main(String[] args) {
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				try {
-					UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-					createAndShowGUI();
-				} catch (Exception ex) {
-				}
-			}
-		});
-	}
-
-	// IDEA magic code...
-	{
-		// GUI initializer generated by IntelliJ IDEA GUI Designer
-		// >>> IMPORTANT!! <<<
-		// DO NOT EDIT OR ADD ANY CODE HERE!
-		$$$setupUI$$$();
-	}
-
-	/**
-	 * Method generated by IntelliJ IDEA GUI Designer >>> IMPORTANT!! <<< DO NOT
-	 * edit this method OR call it in your code!
-	 * 
-	 * @noinspection ALL
-	 */
-	private void $$$setupUI$$$() {
-		panel = new JPanel();
-		panel.setLayout(new GridBagLayout());
-		panel.setMinimumSize(new Dimension(400, 300));
-		final JPanel spacer1 = new JPanel();
-		GridBagConstraints gbc;
-		gbc = new GridBagConstraints();
-		gbc.gridx = 1;
-		gbc.gridy = 0;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		panel.add(spacer1, gbc);
-		final JPanel spacer2 = new JPanel();
-		gbc = new GridBagConstraints();
-		gbc.gridx = 0;
-		gbc.gridy = 1;
-		gbc.fill = GridBagConstraints.VERTICAL;
-		panel.add(spacer2, gbc);
-		final JPanel spacer3 = new JPanel();
-		gbc = new GridBagConstraints();
-		gbc.gridx = 4;
-		gbc.gridy = 1;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		panel.add(spacer3, gbc);
-		browseButton = new JButton();
-		browseButton.setText("Browse");
-		gbc = new GridBagConstraints();
-		gbc.gridx = 1;
-		gbc.gridy = 2;
-		gbc.weightx = 1.0;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		gbc.insets = new Insets(3, 3, 3, 3);
-		panel.add(browseButton, gbc);
-		createSlovoformButton = new JButton();
-		createSlovoformButton.setText("CreateSlovoform");
-		gbc = new GridBagConstraints();
-		gbc.gridx = 2;
-		gbc.gridy = 2;
-		gbc.weightx = 1.0;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		gbc.insets = new Insets(3, 3, 3, 3);
-		panel.add(createSlovoformButton, gbc);
-		startProcessingButton = new JButton();
-		startProcessingButton.setText("CreateConcordance");
-		gbc = new GridBagConstraints();
-		gbc.gridx = 3;
-		gbc.gridy = 2;
-		gbc.weightx = 1.0;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		gbc.insets = new Insets(3, 3, 3, 3);
-		panel.add(startProcessingButton, gbc);
-		logScrollPane = new JScrollPane();
-		gbc = new GridBagConstraints();
-		gbc.gridx = 1;
-		gbc.gridy = 1;
-		gbc.gridwidth = 3;
-		gbc.weightx = 1.0;
-		gbc.weighty = 1.0;
-		gbc.fill = GridBagConstraints.BOTH;
-		panel.add(logScrollPane, gbc);
-		log = new JTextArea();
-		logScrollPane.setViewportView(log);
-		log.setFont(new Font("Monospaced", Font.PLAIN, 14));
-	}
-
-	/**
-	 * @noinspection ALL
-	 */
-	public JComponent $$$getRootComponent$$$() {
-		return panel;
-	}
-}
+package ru.suno.concordance.dlg;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import javax.swing.filechooser.FileFilter;
+
+import ru.suno.concordance.ResourceStrings;
+import ru.suno.concordance.utils.NameCountProcessor;
+import ru.suno.concordance.utils.PagesProcessor;
+import ru.suno.concordance.utils.ProcessingListener;
+import ru.suno.concordance.utils.ProcessingProgress;
+
+public class FileSelectDialog extends JFrame implements ActionListener, ProcessingListener {
+
+	private static final long serialVersionUID = 1368289293343399710L;
+
+	private JButton browseButton; 
+	private JButton createSlovoformButton; 
+	private JButton startProcessingButton; 
+	private JPanel panel;
+
+	private JFileChooser chooser = new JFileChooser();
+	private JScrollPane logScrollPane;
+	private JTextArea log;
+	private List<File> fileList;
+
+	/** Итоги текущего этапа обработки. */
+	private final ProcessingProgress progress = new ProcessingProgress();
+
+	/** Как часто переносить журнал в окно, мс. */
+	private static final int LOG_FLUSH_INTERVAL = 200;
+	/** Сколько сообщений журнала хранить до переноса в окно. */
+	private static final int LOG_BUFFER_SIZE = 4096;
+	/** Сколько символов журнала держать в окне, начало журнала удаляется. */
+	private static final int LOG_MAX_CHARS = 256 * 1024;
+
+	/**
+	 * Сообщения потоков обработки. В окно переносятся таймером в потоке событий,
+	 * все накопившиеся сразу, а не по одному.
+	 * */
+	private final LogBuffer logBuffer = new LogBuffer(LOG_BUFFER_SIZE);
+	private final StringBuilder logChunk = new StringBuilder();
+	private volatile boolean stageRunning = false;
+
+	/**
+	 * Задания обработки выполняются по одному: каждое само использует все процессоры,
+	 * остальные ждут в очереди.
+	 * */
+	private final JobManager jobManager = new JobManager(1, new JobManager.JobListener() {
+		@Override
+		public void jobChanged(JobManager.Job job) {
+			updateJobControls();
+		}
+	});
+
+	private final JButton cancelButton = new JButton();
+	private final JProgressBar progressBar = new JProgressBar();
+
+	/** Количество исходных файлов выполняемого задания, для хода обработки. */
+	private volatile int sourceCount = 0;
+
+	public FileSelectDialog() {
+		super();
+
+		browseButton.setText(ResourceStrings.getInstance().SELECT_SOURCE_FILE);
+		createSlovoformButton.setText(ResourceStrings.getInstance().CREATE_SLOVOFORMCOUNTER);
+		startProcessingButton.setText(ResourceStrings.getInstance().CREATE_CONCORDANCE);
+
+		setContentPane(panel);
+		setMinimumSize(new Dimension(660, 400));
+
+		setTitle(ResourceStrings.getInstance().CONCORDANCE_DIALOGTITLE);
+
+		chooser.setMultiSelectionEnabled(true);
+		chooser.addChoosableFileFilter(new FileFilter() {
+			@Override
+			public boolean accept(File f) {
+				if (f.getName().endsWith(".doc") || f.isDirectory()) {
+					return true;
+				} else {
+					return false;
+				}
+			}
+
+			@Override
+			public String getDescription() {
+				return ResourceStrings.getInstance().WORD_FILES;
+			}
+		});
+
+		// ход обработки и остановка заданий - под кнопками
+		cancelButton.setText(ResourceStrings.getInstance().CANCEL_PROCESSING);
+		cancelButton.setEnabled(false);
+		progressBar.setStringPainted(true);
+		progressBar.setString("");
+		GridBagConstraints gbc = new GridBagConstraints();
+		gbc.gridx = 1;
+		gbc.gridy = 3;
+		gbc.gridwidth = 2;
+		gbc.weightx = 1.0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 3, 3, 3);
+		panel.add(progressBar, gbc);
+		gbc = new GridBagConstraints();
+		gbc.gridx = 3;
+		gbc.gridy = 3;
+		gbc.weightx = 1.0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 3, 3, 3);
+		panel.add(cancelButton, gbc);
+
+		browseButton.addActionListener(this);
+		createSlovoformButton.addActionListener(this);
+		startProcessingButton.addActionListener(this);
+		cancelButton.addActionListener(this);
+
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				jobManager.shutdown();
+			}
+		});
+
+		Timer logTimer = new Timer(LOG_FLUSH_INTERVAL, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				flushLog();
+			}
+		});
+		logTimer.setCoalesce(true);
+		logTimer.start();
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent event) {
+		if (event.getSource() == browseButton) {
+			int retval = chooser.showOpenDialog(FileSelectDialog.this);
+			if (retval == JFileChooser.APPROVE_OPTION) {
+				log.replaceRange(null, 0, log.getText().length());
+				File[] selFiles = chooser.getSelectedFiles();
+				fileList = java.util.Arrays.asList(selFiles);
+
+				for (File file : fileList) {
+					log.append(file.getName() + "\n");
+				}
+
+				log.repaint();
+			}
+
+		} else if (event.getSource() == startProcessingButton) {
+			final JFileChooser saveChooser = new JFileChooser();
+			saveChooser.setMultiSelectionEnabled(false);
+
+			if (saveChooser.showSaveDialog(FileSelectDialog.this) == JFileChooser.APPROVE_OPTION) {
+				// Начать составление конкорданса
+				if (fileList != null && fileList.size() > 0) {
+					clearLogIfIdle();
+					final List<File> sources = new ArrayList<File>(fileList);
+					final PagesProcessor pr = new PagesProcessor(this);
+					pr.setResultName(saveChooser.getSelectedFile().getName());
+					pr.setDocPath(saveChooser.getCurrentDirectory().getPath());
+					submitJob(new JobManager.Job(ResourceStrings.getInstance().CREATE_CONCORDANCE) {
+						@Override
+						protected String execute() {
+							logMessage("\nЗапуск системы обработки текста...");
+							sourceCount = sources.size();
+							String result = pr.processAllDocuments(sources);
+							if (!isStopped(result)) {
+								logMessage("Обработка завершена");
+							}
+							return result;
+						}
+
+						@Override
+						protected void requestCancel() {
+							pr.cancel();
+						}
+
+						@Override
+						protected boolean isStopped(String aResult) {
+							return ResourceStrings.getInstance().PROCESSING_CANCELLED.equals(aResult);
+						}
+					});
+				}
+			}
+		} else if (event.getSource() == createSlovoformButton) {
+			JFileChooser saveChooser = new JFileChooser();
+			saveChooser.setMultiSelectionEnabled(false);
+
+			if (saveChooser.showSaveDialog(FileSelectDialog.this) == JFileChooser.APPROVE_OPTION) {
+				if (fileList != null && fileList.size() > 0) {
+					clearLogIfIdle();
+					final List<File> sources = new ArrayList<File>(fileList);
+					final NameCountProcessor pr = new NameCountProcessor();
+					pr.setResultName(saveChooser.getSelectedFile().getName());
+					pr.setDocPath(saveChooser.getCurrentDirectory().getPath());
+					submitJob(new JobManager.Job(ResourceStrings.getInstance().CREATE_SLOVOFORMCOUNTER) {
+						@Override
+						protected String execute() {
+							logMessage("\nЗапуск системы составления словоформ...");
+							sourceCount = sources.size();
+							String result = pr.processAllDocuments(sources, FileSelectDialog.this);
+							if (!isStopped(result)) {
+								logMessage("Словоформы составлены");
+							}
+							return result;
+						}
+
+						@Override
+						protected void requestCancel() {
+							pr.cancel();
+						}
+
+						@Override
+						protected boolean isStopped(String aResult) {
+							return ResourceStrings.getInstance().PROCESSING_CANCELLED.equals(aResult);
+						}
+					});
+				}
+			}
+		} else if (event.getSource() == cancelButton) {
+			// останавливается только выполняемое задание, задания в очереди остаются
+			List<JobManager.Job> jobs = jobManager.getJobs();
+			if (!jobs.isEmpty()) {
+				jobManager.cancel(jobs.get(0));
+			}
+		}
+	}
+
+	/** Очистить журнал, если нет выполняемых и ожидающих заданий. */
+	private void clearLogIfIdle() {
+		if (jobManager.getActiveCount() == 0) {
+			log.replaceRange(null, 0, log.getText().length());
+		}
+	}
+
+	/** Поставить задание в очередь, сообщить, если оно будет ждать. */
+	private void submitJob(JobManager.Job job) {
+		int waiting = jobManager.getActiveCount();
+		if (waiting > 0) {
+			logMessage(job.getName() + ": в очереди, заданий перед ним - " + waiting);
+		}
+		jobManager.submit(job);
+	}
+
+	/** Кнопка остановки и ход обработки для текущих заданий. Вызывается в потоке событий. */
+	private void updateJobControls() {
+		cancelButton.setEnabled(jobManager.getActiveCount() > 0);
+		updateProgressBar();
+	}
+
+	/**
+	 * Ход обработки выполняемого задания: доля обработанных исходных файлов,
+	 * если количество файлов этапа известно. Вызывается в потоке событий.
+	 * */
+	private void updateProgressBar() {
+		List<JobManager.Job> jobs = jobManager.getJobs();
+		if (jobs.isEmpty()) {
+			progressBar.setIndeterminate(false);
+			progressBar.setValue(0);
+			progressBar.setString("");
+			return;
+		}
+		JobManager.Job current = jobs.get(0);
+		StringBuilder text = new StringBuilder(current.getName());
+		String stage = progress.getStage();
+		int documents = progress.getDocuments();
+		boolean counted = ProcessingListener.STAGE_PARSE.equals(stage) || ProcessingListener.STAGE_COUNT.equals(stage);
+		if (current.getState() == JobManager.State.RUNNING && stageRunning && counted && sourceCount > 0) {
+			progressBar.setIndeterminate(false);
+			progressBar.setMaximum(sourceCount);
+			progressBar.setValue(Math.min(documents, sourceCount));
+			text.append(": ").append(Math.min(documents, sourceCount)).append(" / ").append(sourceCount);
+		} else {
+			// количество файлов букв заранее неизвестно
+			progressBar.setIndeterminate(current.getState() == JobManager.State.RUNNING);
+			if (stageRunning) {
+				text.append(": ").append(documents);
+			}
+		}
+		if (current.isCancelRequested()) {
+			text.append(" (").append(ResourceStrings.getInstance().PROCESSING_CANCELLED).append(")");
+		}
+		if (jobs.size() > 1) {
+			text.append(", в очереди: ").append(jobs.size() - 1);
+		}
+		progressBar.setString(text.toString());
+	}
+
+	/** Добавить сообщение в журнал. Можно вызывать из любого потока. */
+	public void logMessage(String msg) {
+		logBuffer.add(msg);
+	}
+
+	/**
+	 * Перенести накопившиеся сообщения в окно одним добавлением текста,
+	 * показать ход обработки в заголовке окна. Вызывается в потоке событий.
+	 * */
+	private void flushLog() {
+		logChunk.setLength(0);
+		long lost = logBuffer.drain(logChunk);
+		if (lost > 0) {
+			logChunk.append("... пропущено сообщений: ").append(lost).append('\n');
+		}
+		if (logChunk.length() > 0) {
+			log.append(logChunk.toString());
+			int excess = log.getDocument().getLength() - LOG_MAX_CHARS;
+			if (excess > 0) {
+				log.replaceRange(null, 0, excess);
+			}
+		}
+
+		updateProgressBar();
+
+		String title = ResourceStrings.getInstance().CONCORDANCE_DIALOGTITLE;
+		if (stageRunning) {
+			title = title + " - " + progress;
+		}
+		if (!title.equals(getTitle())) {
+			setTitle(title);
+		}
+	}
+
+	@Override
+	public void stageStarted(String stage) {
+		progress.startStage(stage);
+		stageRunning = true;
+	}
+
+	@Override
+	public void stageFinished(String stage) {
+		stageRunning = false;
+		logMessage(progress.toString());
+	}
+
+	@Override
+	public void documentProcessed(File document, long bytes, long words, int sentences) {
+		progress.addDocument(bytes, words, sentences);
+	}
+
+	@Override
+	public void message(String message) {
+		logMessage(message);
+	}
+
+	@Override
+	public void error(String message, Throwable ex) {
+		// сообщение и стек вызовов уже выведены в журнал
+	}
+
+	private static void createAndShowGUI() {
+		FileSelectDialog dlg = new FileSelectDialog();
+		dlg.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+		dlg.setVisible(true);
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				try {
+					UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+					createAndShowGUI();
+				} catch (Exception ex) {
+				}
+			}
+		});
+	}
+
+	// IDEA magic code...
+	{
+		// GUI initializer generated by IntelliJ IDEA GUI Designer
+		// >>> IMPORTANT!! <<<
+		// DO NOT EDIT OR ADD ANY CODE HERE!
+		$$$setupUI$$$();
+	}
+
+	/**
+	 * Method generated by IntelliJ IDEA GUI Designer >>> IMPORTANT!! <<< DO NOT
+	 * edit this method OR call it in your code!
+	 * 
+	 * @noinspection ALL
+	 */
+	private void $$$setupUI$$$() {
+		panel = new JPanel();
+		panel.setLayout(new GridBagLayout());
+		panel.setMinimumSize(new Dimension(400, 300));
+		final JPanel spacer1 = new JPanel();
+		GridBagConstraints gbc;
+		gbc = new GridBagConstraints();
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		panel.add(spacer1, gbc);
+		final JPanel spacer2 = new JPanel();
+		gbc = new GridBagConstraints();
+		gbc.gridx = 0;
+		gbc.gridy = 1;
+		gbc.fill = GridBagConstraints.VERTICAL;
+		panel.add(spacer2, gbc);
+		final JPanel spacer3 = new JPanel();
+		gbc = new GridBagConstraints();
+		gbc.gridx = 4;
+		gbc.gridy = 1;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		panel.add(spacer3, gbc);
+		browseButton = new JButton();
+		browseButton.setText("Browse");
+		gbc = new GridBagConstraints();
+		gbc.gridx = 1;
+		gbc.gridy = 2;
+		gbc.weightx = 1.0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 3, 3, 3);
+		panel.add(browseButton, gbc);
+		createSlovoformButton = new JButton();
+		createSlovoformButton.setText("CreateSlovoform");
+		gbc = new GridBagConstraints();
+		gbc.gridx = 2;
+		gbc.gridy = 2;
+		gbc.weightx = 1.0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 3, 3, 3);
+		panel.add(createSlovoformButton, gbc);
+		startProcessingButton = new JButton();
+		startProcessingButton.setText("CreateConcordance");
+		gbc = new GridBagConstraints();
+		gbc.gridx = 3;
+		gbc.gridy = 2;
+		gbc.weightx = 1.0;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 3, 3, 3);
+		panel.add(startProcessingButton, gbc);
+		logScrollPane = new JScrollPane();
+		gbc = new GridBagConstraints();
+		gbc.gridx = 1;
+		gbc.gridy = 1;
+		gbc.gridwidth = 3;
+		gbc.weightx = 1.0;
+		gbc.weighty = 1.0;
+		gbc.fill = GridBagConstraints.BOTH;
+		panel.add(logScrollPane, gbc);
+		log = new JTextArea();
+		logScrollPane.setViewportView(log);
+		log.setFont(new Font("Monospaced", Font.PLAIN, 14));
+	}
+
+	/**
+	 * @noinspection ALL
+	 */
+	public JComponent $$$getRootComponent$$$() {
+		return panel;
+	}
+}
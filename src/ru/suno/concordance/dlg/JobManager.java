@@ -0,0 +1,215 @@
+package ru.suno.concordance.dlg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Фоновые задания окна (составление конкорданса, подсчет словоформ): очередь и пул потоков.
+ * <p>Задания выполняются в порядке добавления, одновременно - не больше размера пула.
+ * Задание в очереди снимается сразу, выполняемое задание получает запрос на остановку
+ * ({@link Job#requestCancel()}) и прекращает работу между этапами обработки.
+ * Остановленным считается задание, результат которого это подтверждает ({@link Job#isStopped(String)}).
+ * <p>Слушатель заданий вызывается в потоке событий Swing.
+ * */
+public class JobManager {
+
+	/** Состояние задания. */
+	public enum State {
+		QUEUED,
+		RUNNING,
+		DONE,
+		CANCELLED,
+		FAILED
+	};
+
+	/** Получает изменения состояния заданий, вызывается в потоке событий Swing. */
+	public interface JobListener {
+		void jobChanged(Job job);
+	}
+
+	/** Фоновое задание. */
+	public static abstract class Job {
+
+		private final String name;
+		private volatile State state = State.QUEUED;
+		private volatile boolean cancelRequested = false;
+		private volatile String result = null;
+
+		protected Job(String aName) {
+			name = aName;
+		}
+
+		/**
+		 * Выполнить задание в потоке пула.
+		 * @return результат для журнала, например имя созданного файла.
+		 * */
+		protected abstract String execute() throws Exception;
+
+		/**
+		 * Попросить выполняемое задание остановиться. Вызывается из потока событий,
+		 * не должен ждать остановки.
+		 * */
+		protected abstract void requestCancel();
+
+		/**
+		 * Задание остановлено, а не выполнено до конца. Решается по результату
+		 * {@link #execute()}, а не по запросу на остановку: запрос мог прийти,
+		 * когда задание уже выполнено.
+		 * */
+		protected boolean isStopped(String aResult) {
+			return false;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		/** Результат выполненного задания, null - задание не выполнено. */
+		public String getResult() {
+			return result;
+		}
+
+		public boolean isCancelRequested() {
+			return cancelRequested;
+		}
+
+		public boolean isFinished() {
+			return state == State.DONE || state == State.CANCELLED || state == State.FAILED;
+		}
+	}
+
+	private final ExecutorService executor;
+	private final JobListener listener;
+
+	/** Задания в очереди и выполняемые, в порядке добавления. */
+	private final List<Job> jobs = new ArrayList<Job>();
+	private final Map<Job, Future<?>> futures = new HashMap<Job, Future<?>>();
+
+	/**
+	 * @param threadCount сколько заданий выполнять одновременно.
+	 * @param aListener получает изменения состояния заданий, может быть null.
+	 * */
+	public JobManager(int threadCount, JobListener aListener) {
+		listener = aListener;
+		final AtomicInteger threadNumber = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "concordance-job-" + threadNumber.incrementAndGet());
+				// незаконченные задания не мешают завершить программу
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** Поставить задание в очередь. */
+	public synchronized void submit(final Job job) {
+		jobs.add(job);
+		futures.put(job, executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				runJob(job);
+			}
+		}));
+		fireJobChanged(job);
+	}
+
+	/** Снять задание из очереди или попросить выполняемое задание остановиться. */
+	public synchronized void cancel(Job job) {
+		if (job.state == State.QUEUED) {
+			futures.remove(job).cancel(false);
+			jobs.remove(job);
+			job.state = State.CANCELLED;
+			fireJobChanged(job);
+		} else if (job.state == State.RUNNING && !job.cancelRequested) {
+			job.cancelRequested = true;
+			job.requestCancel();
+			fireJobChanged(job);
+		}
+	}
+
+	/** Остановить все задания: выполняемые и в очереди. */
+	public synchronized void cancelAll() {
+		for (Job job : new ArrayList<Job>(jobs)) {
+			cancel(job);
+		}
+	}
+
+	/** Остановить все задания и больше не принимать новых. */
+	public synchronized void shutdown() {
+		cancelAll();
+		executor.shutdown();
+	}
+
+	/** Задания в очереди и выполняемые, в порядке добавления. */
+	public synchronized List<Job> getJobs() {
+		return new ArrayList<Job>(jobs);
+	}
+
+	/** Количество заданий в очереди и выполняемых. */
+	public synchronized int getActiveCount() {
+		return jobs.size();
+	}
+
+	private void runJob(Job job) {
+		synchronized (this) {
+			// задание могли снять из очереди, пока поток пула его забирал
+			if (job.state != State.QUEUED) {
+				return;
+			}
+			job.state = State.RUNNING;
+			fireJobChanged(job);
+		}
+
+		State finalState;
+		try {
+			job.result = job.execute();
+			finalState = job.isStopped(job.result) ? State.CANCELLED : State.DONE;
+		} catch (InterruptedException ex) {
+			finalState = State.CANCELLED;
+		} catch (CancellationException ex) {
+			finalState = State.CANCELLED;
+		} catch (Throwable ex) {
+			ex.printStackTrace();
+			finalState = State.FAILED;
+		}
+
+		synchronized (this) {
+			job.state = finalState;
+			jobs.remove(job);
+			futures.remove(job);
+			fireJobChanged(job);
+		}
+	}
+
+	private void fireJobChanged(final Job job) {
+		if (listener == null) {
+			return;
+		}
+		if (SwingUtilities.isEventDispatchThread()) {
+			listener.jobChanged(job);
+		} else {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					listener.jobChanged(job);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package ru.suno.concordance.dlg;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Журнал ограниченного размера (кольцевой буфер) между потоками обработки и окном.
+ * <p>Потоки обработки добавляют сообщения без блокировок: номер ячейки берется
+ * атомарным счетчиком, на время записи сообщения ячейка помечается как пустая,
+ * после записи - номером сообщения.
+ * Сообщения забирает один поток (поток событий Swing), сразу все накопившиеся.
+ * <p>Если читатель не успевает, старые сообщения затираются новыми,
+ * количество потерянных сообщений возвращает {@link #drain(StringBuilder)}.
+ * */
+public class LogBuffer {
+
+	private final int mask;
+	private final AtomicReferenceArray<String> messages;
+	/** Номер сообщения, записанного в ячейку (-1 - ячейка пуста). */
+	private final AtomicLongArray sequences;
+	/** Номер следующего сообщения. */
+	private final AtomicLong writeIndex = new AtomicLong();
+	/** Номер следующего непрочитанного сообщения, только для читателя. */
+	private long readIndex = 0;
+
+	/**
+	 * @param capacity сколько сообщений хранить, округляется вверх до степени двойки.
+	 * */
+	public LogBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Размер журнала должен быть больше 0");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		mask = size - 1;
+		messages = new AtomicReferenceArray<String>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, -1);
+		}
+	}
+
+	/** Добавить сообщение. Можно вызывать из любого потока. */
+	public void add(String message) {
+		long sequence = writeIndex.getAndIncrement();
+		int slot = (int) sequence & mask;
+		sequences.set(slot, -1);
+		messages.set(slot, message);
+		sequences.set(slot, sequence);
+	}
+
+	/**
+	 * Забрать все накопившиеся сообщения, каждое с переводом строки.
+	 * Вызывается только из одного потока.
+	 * @return сколько сообщений потеряно с прошлого вызова, потому что буфер переполнился.
+	 * */
+	public long drain(StringBuilder out) {
+		long end = writeIndex.get();
+		long lost = 0;
+		if (end - readIndex > mask + 1) {
+			lost = end - (mask + 1) - readIndex;
+			readIndex = end - (mask + 1);
+		}
+		while (readIndex < end) {
+			int slot = (int) readIndex & mask;
+			long sequence = sequences.get(slot);
+			if (sequence < readIndex) {
+				// сообщение еще записывается - дочитать в следующий раз
+				break;
+			}
+			String message = messages.get(slot);
+			if (sequence == readIndex && sequences.get(slot) == readIndex) {
+				out.append(message).append('\n');
+			} else {
+				// ячейку уже затерло более новое сообщение
+				lost++;
+			}
+			readIndex++;
+		}
+		return lost;
+	}
+
+	/** Есть ли непрочитанные сообщения. Вызывается тем же потоком, что и {@link #drain(StringBuilder)}. */
+	public boolean isEmpty() {
+		return readIndex == writeIndex.get();
+	}
+}
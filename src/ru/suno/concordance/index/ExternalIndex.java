@@ -0,0 +1,530 @@
+package ru.suno.concordance.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.SentenceTable;
+import ru.suno.concordance.WordCollator;
+import ru.suno.concordance.parser.WordTokenizer;
+
+/**
+ * Обратный индекс во внешней памяти - для текстов, словарь и индекс которых
+ * не помещаются в заданный объем памяти.
+ * <p>Предложения добавляются и связываются в небольшой таблице ({@link #getSentenceTable()}),
+ * как в {@link InvertedIndex}. Законченные предложения ({@link #release(int)}) записываются
+ * в {@link SentenceFile} в том виде, в каком выводятся в конкорданс, и из таблицы удаляются.
+ * <p>Пары (слово, предложение) копятся в памяти; когда превышен объем, они сортируются
+ * по словам и сбрасываются в файл - отсортированную серию. Так же по частям
+ * сбрасывается словарь текста ({@link #spillWords(ConcWordTable)}).
+ * <p>Серии сливаются при чтении ({@link Cursor}): слова выдаются в алфавитном порядке,
+ * как {@link ConcWordTable#getWordsAlphabetically()}, предложения слова - в порядке
+ * следования в тексте. В памяти при этом находится по одной записи из каждой серии.
+ * <p>Временные файлы удаляются в {@link #close()}.
+ * */
+public class ExternalIndex {
+
+    /** Примерный объем памяти на слово словаря, байт. */
+    private static final int WORD_BYTES = 96;
+    /** Объем памяти на пару (слово, предложение), байт. */
+    private static final int POSTING_BYTES = 12;
+
+    private static final int RUN_BUFFER = 16 * 1024;
+
+    private final File dir;
+    private final long postingsBudget;
+    private final long wordsBudget;
+
+    private final SentenceFile sentenceFile;
+
+    /** Предложения, которые еще могут быть связаны со следующими. */
+    private SentenceTable window = new SentenceTable();
+    /** Количество предложений перед таблицей. */
+    private int windowBase = 0;
+    /** Предложения таблицы до этого номера уже записаны. */
+    private int released = 0;
+
+    // пары (слово, предложение) до сброса в серию
+    private ConcWordTable pairWords = new ConcWordTable();
+    private long[] lastSentence = new long[0];
+    private int[] pairWordIds = new int[1024];
+    private long[] pairSentences = new long[1024];
+    private int pairCount = 0;
+
+    private final List<File> postingRuns = new ArrayList<File>();
+    private final List<File> wordRuns = new ArrayList<File>();
+
+    private final List<Cursor> cursors = new ArrayList<Cursor>();
+
+    /**
+     * @param tempDir каталог, в котором создается каталог временных файлов.
+     * @param memoryBudget примерный объем памяти для словаря и индекса, байт:
+     * половина - на пары (слово, предложение), четверть - на словарь текста.
+     * */
+    public ExternalIndex(File tempDir, long memoryBudget) throws IOException {
+        dir = File.createTempFile("concordance", ".tmp", tempDir);
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Не удалось создать каталог " + dir);
+        }
+        postingsBudget = memoryBudget / 2;
+        wordsBudget = memoryBudget / 4;
+        sentenceFile = new SentenceFile(new File(dir, "sentences"));
+    }
+
+    /** Таблица, в которую добавляются и в которой связываются новые предложения. */
+    public SentenceTable getSentenceTable() {
+        return window;
+    }
+
+    /** Количество всех добавленных предложений. */
+    public int getSentenceCount() {
+        return windowBase + window.size();
+    }
+
+    /**
+     * Записать все предложения таблицы, кроме последнего, которое еще может
+     * быть связано со следующим, и освободить таблицу.
+     * @param last последнее предложение таблицы, -1 - предложений нет.
+     * @return номер последнего предложения в новой таблице.
+     * */
+    public int release(int last) throws IOException {
+        int size = window.size();
+        if (last != size - 1) {
+            throw new IllegalArgumentException("Предложение " + last + " не последнее");
+        }
+        if (size < 2) {
+            return last;
+        }
+        writeSentences(size - 1);
+
+        // в новую таблицу переносятся последнее предложение и предыдущее для его вывода
+        SentenceTable next = new SentenceTable();
+        for (int id = size - 2; id < size; id++) {
+            String text = window.getSourceSentence(id);
+            next.addSentence(next.addPage(text, window.getReference(id)), 0, text.length());
+            next.setBroken(id - size + 2, window.isBroken(id));
+        }
+        if (window.getPrevious(size - 1) != -1) {
+            next.link(1);
+        }
+        windowBase += size - 2;
+        window = next;
+        released = 1;
+        return 1;
+    }
+
+    /**
+     * Все предложения добавлены: записать оставшиеся предложения, пары и словарь.
+     * После этого индекс только читается.
+     * */
+    public void finish(ConcWordTable words) throws IOException {
+        writeSentences(window.size());
+        window = new SentenceTable();
+        if (pairCount > 0) {
+            spillPostings();
+        }
+        pairWords = null;
+        if (words.size() > 0) {
+            writeWords(words);
+        }
+        sentenceFile.finishWriting();
+    }
+
+    /**
+     * Сбросить словарь в серию, если он больше своей части памяти.
+     * @return словарь, в который считать слова дальше: тот же или новый.
+     * */
+    public ConcWordTable spillWords(ConcWordTable words) throws IOException {
+        if ((long) words.size() * WORD_BYTES <= wordsBudget) {
+            return words;
+        }
+        writeWords(words);
+        return new ConcWordTable();
+    }
+
+    /** Количество сброшенных серий: пар и словаря. */
+    public int getRunCount() {
+        return postingRuns.size() + wordRuns.size();
+    }
+
+    public SentenceFile.Sentence readSentence(long id) throws IOException {
+        return sentenceFile.read(id);
+    }
+
+    /** Слияние серий, после {@link #finish(ConcWordTable)}. */
+    public Cursor openWords() throws IOException {
+        Cursor cursor = new Cursor();
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    /** Удалить временные файлы. */
+    public void close() {
+        for (Cursor cursor : cursors) {
+            cursor.close();
+        }
+        try {
+            sentenceFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private void writeSentences(int end) throws IOException {
+        for (int id = released; id < end; id++) {
+            ConcSentence sentence = window.getSentence(id);
+            final long sentenceId = sentenceFile.append(sentence.getContextSentence(), sentence.getReference());
+            window.tokenize(id, new WordTokenizer.TokenHandler() {
+                public void token(CharSequence text, int start, int end) {
+                    addPair(pairWords.add(text, start, end), sentenceId);
+                }
+            });
+            if ((long) pairCount * POSTING_BYTES + (long) pairWords.size() * WORD_BYTES > postingsBudget) {
+                spillPostings();
+            }
+        }
+        released = end;
+    }
+
+    private void addPair(int wordId, long sentenceId) {
+        if (wordId == lastSentence.length) {
+            int from = lastSentence.length;
+            lastSentence = Arrays.copyOf(lastSentence, Math.max(from * 2, 1024));
+            Arrays.fill(lastSentence, from, lastSentence.length, -1);
+        }
+        if (lastSentence[wordId] == sentenceId) {
+            return;
+        }
+        lastSentence[wordId] = sentenceId;
+        if (pairCount == pairWordIds.length) {
+            pairWordIds = Arrays.copyOf(pairWordIds, pairCount * 2);
+            pairSentences = Arrays.copyOf(pairSentences, pairCount * 2);
+        }
+        pairWordIds[pairCount] = wordId;
+        pairSentences[pairCount] = sentenceId;
+        pairCount++;
+    }
+
+    /**
+     * Серия пар: количество слов, затем для каждого слова по алфавиту -
+     * слово и его ключ сортировки, количество предложений и номера предложений по возрастанию (разностями).
+     * */
+    private void spillPostings() throws IOException {
+        int wordCount = pairWords.size();
+        // пары раскладываются по словам, порядок предложений сохраняется
+        int[] starts = new int[wordCount + 1];
+        for (int i = 0; i < pairCount; i++) {
+            starts[pairWordIds[i] + 1]++;
+        }
+        for (int w = 0; w < wordCount; w++) {
+            starts[w + 1] += starts[w];
+        }
+        long[] byWord = new long[pairCount];
+        int[] fill = Arrays.copyOf(starts, wordCount);
+        for (int i = 0; i < pairCount; i++) {
+            byWord[fill[pairWordIds[i]]++] = pairSentences[i];
+        }
+
+        File run = new File(dir, "postings" + postingRuns.size());
+        DataOutputStream out = openRun(run);
+        try {
+            out.writeInt(wordCount);
+            for (int w : pairWords.getIdsAlphabetically()) {
+                writeKey(out, pairWords.getKey(w), pairWords.getSortKey(w));
+                out.writeInt(starts[w + 1] - starts[w]);
+                long prev = 0;
+                for (int i = starts[w]; i < starts[w + 1]; i++) {
+                    writeVarLong(out, byWord[i] - prev);
+                    prev = byWord[i];
+                }
+            }
+        } finally {
+            out.close();
+        }
+        postingRuns.add(run);
+
+        pairWords = new ConcWordTable();
+        lastSentence = new long[0];
+        pairCount = 0;
+    }
+
+    /**
+     * Серия словаря: количество слов, затем для каждого слова по алфавиту -
+     * слово и его ключ сортировки, слово в том виде, в каком встретилось впервые, и количество употреблений.
+     * */
+    private void writeWords(ConcWordTable words) throws IOException {
+        File run = new File(dir, "words" + wordRuns.size());
+        DataOutputStream out = openRun(run);
+        try {
+            out.writeInt(words.size());
+            for (int id : words.getIdsAlphabetically()) {
+                ConcWord word = words.getWord(id);
+                writeKey(out, word.getWord(), words.getSortKey(id));
+                out.writeUTF(word.getSourceWord());
+                out.writeInt(word.getManualNumberOfOccurences());
+            }
+        } finally {
+            out.close();
+        }
+        wordRuns.add(run);
+    }
+
+    /** Слово и ключ сортировки, чтобы при слиянии ключи не строились заново. */
+    private static void writeKey(DataOutputStream out, String key, byte[] sortKey) throws IOException {
+        out.writeUTF(key);
+        out.writeShort(sortKey.length);
+        out.write(sortKey);
+    }
+
+    private static DataOutputStream openRun(File run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), RUN_BUFFER));
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    /** Чтение одной серии, запись за записью. */
+    private static class RunReader {
+
+        private final int run;
+        private final DataInputStream in;
+        private int remaining;
+
+        private String key;
+        private byte[] sortKey;
+
+        // запись словаря
+        private String sourceWord;
+        private int count;
+
+        // запись пар: оставшиеся предложения слова
+        private int postings;
+        private long sentence;
+
+        RunReader(int aRun, File file) throws IOException {
+            run = aRun;
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), RUN_BUFFER));
+            remaining = in.readInt();
+        }
+
+        /** Прочитать следующую запись словаря, false - серия кончилась. */
+        boolean nextWord() throws IOException {
+            if (!nextKey()) {
+                return false;
+            }
+            sourceWord = in.readUTF();
+            count = in.readInt();
+            return true;
+        }
+
+        /** Перейти к следующему слову серии пар, false - серия кончилась. */
+        boolean nextPostings() throws IOException {
+            while (postings > 0) {
+                nextSentence();
+            }
+            if (!nextKey()) {
+                return false;
+            }
+            postings = in.readInt();
+            sentence = 0;
+            return true;
+        }
+
+        /** Следующее предложение слова, -1 - предложений больше нет. */
+        long nextSentence() throws IOException {
+            if (postings == 0) {
+                return -1;
+            }
+            postings--;
+            sentence += readVarLong(in);
+            return sentence;
+        }
+
+        private boolean nextKey() throws IOException {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            remaining--;
+            key = in.readUTF();
+            sortKey = new byte[in.readUnsignedShort()];
+            in.readFully(sortKey);
+            return true;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Записи с одинаковым словом - в порядке серий. */
+    private static final Comparator<RunReader> RUN_ORDER = new Comparator<RunReader>() {
+        public int compare(RunReader r1, RunReader r2) {
+            int result = WordCollator.compare(r1.sortKey, r1.key, r2.sortKey, r2.key);
+            return result != 0 ? result : r1.run - r2.run;
+        }
+    };
+
+    /**
+     * Слияние серий словаря и пар. Слова выдаются по алфавиту ({@link #next()}),
+     * для каждого - количество употреблений и предложения ({@link #nextSentence()}).
+     * Слово, сброшенное в несколько серий словаря, выдается один раз, с суммой
+     * употреблений и в том виде, в каком встретилось впервые.
+     * */
+    public class Cursor {
+
+        private final PriorityQueue<RunReader> words = new PriorityQueue<RunReader>(11, RUN_ORDER);
+        private final PriorityQueue<RunReader> postings = new PriorityQueue<RunReader>(11, RUN_ORDER);
+        private final List<RunReader> all = new ArrayList<RunReader>();
+
+        /** Серии пар текущего слова, по порядку серий. */
+        private final List<RunReader> current = new ArrayList<RunReader>();
+        private int currentRun = 0;
+
+        private String key;
+        private String sourceWord;
+        private int count;
+
+        private Cursor() throws IOException {
+            try {
+                for (int i = 0; i < wordRuns.size(); i++) {
+                    RunReader reader = new RunReader(i, wordRuns.get(i));
+                    all.add(reader);
+                    if (reader.nextWord()) {
+                        words.add(reader);
+                    }
+                }
+                for (int i = 0; i < postingRuns.size(); i++) {
+                    RunReader reader = new RunReader(i, postingRuns.get(i));
+                    all.add(reader);
+                    if (reader.nextPostings()) {
+                        postings.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /** Перейти к следующему слову, false - слов больше нет. */
+        public boolean next() throws IOException {
+            for (RunReader reader : current) {
+                if (reader.nextPostings()) {
+                    postings.add(reader);
+                }
+            }
+            current.clear();
+            currentRun = 0;
+
+            RunReader first = words.poll();
+            if (first == null) {
+                return false;
+            }
+            key = first.key;
+            byte[] sortKey = first.sortKey;
+            sourceWord = first.sourceWord;
+            count = first.count;
+            if (first.nextWord()) {
+                words.add(first);
+            }
+            while (!words.isEmpty() && words.peek().key.equals(key)) {
+                RunReader reader = words.poll();
+                count += reader.count;
+                if (reader.nextWord()) {
+                    words.add(reader);
+                }
+            }
+
+            // слова предложений, которых нет в словаре (знаки препинания), пропускаются
+            while (!postings.isEmpty()
+                    && WordCollator.compare(postings.peek().sortKey, postings.peek().key, sortKey, key) < 0) {
+                RunReader reader = postings.poll();
+                if (reader.nextPostings()) {
+                    postings.add(reader);
+                }
+            }
+            while (!postings.isEmpty() && postings.peek().key.equals(key)) {
+                current.add(postings.poll());
+            }
+            return true;
+        }
+
+        /** Нормализованное слово. */
+        public String getKey() {
+            return key;
+        }
+
+        /** Слово в том виде, в каком встретилось впервые. */
+        public String getSourceWord() {
+            return sourceWord;
+        }
+
+        /** Количество употреблений слова. */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Следующее предложение, в котором встречается слово, для {@link ExternalIndex#readSentence(long)}.
+         * @return номер предложения, -1 - предложений больше нет.
+         * */
+        public long nextSentence() throws IOException {
+            while (currentRun < current.size()) {
+                long sentence = current.get(currentRun).nextSentence();
+                if (sentence != -1) {
+                    return sentence;
+                }
+                currentRun++;
+            }
+            return -1;
+        }
+
+        public void close() {
+            for (RunReader reader : all) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package ru.suno.concordance.index;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.SentenceTable;
+import ru.suno.concordance.parser.PageSentences;
+import ru.suno.concordance.parser.WordTokenizer;
+
+/**
+ * Обратный индекс: слово -> список номеров предложений, в которых оно встречается.
+ * <p>Строится за один проход по словам каждого предложения. Номера предложений
+ * в списке слова идут в порядке добавления предложений.
+ * <p>Индекс ведет собственный словарь слов предложений (<code>tokens</code>), отдельный
+ * от словаря конкорданса ({@link ru.suno.concordance.utils.DocumentPipeline#getWords()}),
+ * поэтому словоформа хранится в обоих словарях. Общий словарь не подходит:
+ * <ul>
+ * <li>предложения разбиваются на слова иначе ({@link SentenceTable#tokenize}),
+ * в словаре индекса есть и знаки препинания, и слова, которых нет в словаре конкорданса;</li>
+ * <li>индекс документа строится параллельно с другими документами, раньше,
+ * чем станет известен весь словарь текста, номера слов сдвигаются при слиянии
+ * ({@link #addAll(InvertedIndex)});</li>
+ * <li>при построении во внешней памяти словарь конкорданса частями сбрасывается
+ * на диск, и номера слов в нем не постоянны.</li>
+ * </ul>
+ * Второй словарь стоит около 90 байт на словоформу (строка и ячейки таблицы),
+ * около 9 Мб на 100 000 словоформ, и только при построении индекса в памяти:
+ * во внешней памяти хранятся лишь словари индексов отдельных документов до слияния.
+ * */
+public class InvertedIndex implements Serializable {
+
+    private static final long serialVersionUID = -7414671647565014648L;
+
+    private static final int INITIAL_POSTINGS = 4;
+
+    /** Слова и знаки препинания предложений, номера - номера слов в предложениях. */
+    private final ConcWordTable tokens = new ConcWordTable();
+
+    /** Предложения по номеру. */
+    private final SentenceTable sentences = new SentenceTable();
+
+    // при сохранении записываются только заполненные части списков
+
+    /** Списки номеров предложений по номеру слова. */
+    private transient int[][] postings = new int[INITIAL_POSTINGS][];
+    private transient int[] postingsSize = new int[INITIAL_POSTINGS];
+
+    /** Номер последнего предложения, добавленного в список слова. */
+    private transient int[] lastSentence = new int[INITIAL_POSTINGS];
+
+    /** Номера слов разбираемого предложения. */
+    private transient int[] sentenceTokens = new int[64];
+    private transient int sentenceTokenCount;
+
+    /**
+     * Добавить в индекс предложения страницы.
+     * */
+    public void addPage(PageSentences page) {
+        int first = page.addTo(sentences);
+        for (int id = first; id < sentences.size(); id++) {
+            addSentence(id);
+        }
+    }
+
+    /**
+     * Добавить в индекс слова предложения из таблицы предложений индекса.
+     * Предложение запоминает номера своих слов.
+     * */
+    private void addSentence(final int sentenceId) {
+        // слова предложения берутся прямо из текста
+        sentenceTokenCount = 0;
+        sentences.tokenize(sentenceId, new WordTokenizer.TokenHandler() {
+            public void token(CharSequence text, int start, int end) {
+                int wordId = tokens.add(text, start, end);
+                if (sentenceTokenCount == sentenceTokens.length) {
+                    sentenceTokens = Arrays.copyOf(sentenceTokens, sentenceTokenCount * 2);
+                }
+                sentenceTokens[sentenceTokenCount++] = wordId;
+                if (wordId == postings.length) {
+                    grow();
+                }
+                if (postings[wordId] == null || lastSentence[wordId] != sentenceId) {
+                    lastSentence[wordId] = sentenceId;
+                    addPosting(wordId, sentenceId);
+                }
+            }
+        });
+        sentences.setTokens(sentenceId, sentenceTokens, sentenceTokenCount);
+    }
+
+    /**
+     * Добавить в конец индекса все предложения другого индекса
+     * (например, индекса, построенного по отдельному документу).
+     * Номера предложений другого индекса сдвигаются на количество предложений в этом индексе.
+     * */
+    public void addAll(InvertedIndex other) {
+        int base = sentences.size();
+        int[] tokenMap = new int[other.tokens.size()];
+        tokens.addAll(other.tokens, tokenMap);
+        sentences.addAll(other.sentences, tokenMap);
+
+        for (int otherId = 0; otherId < other.tokens.size(); otherId++) {
+            int wordId = tokenMap[otherId];
+            while (wordId >= postings.length) {
+                grow();
+            }
+            int[] otherList = other.postings[otherId];
+            int otherSize = other.postingsSize[otherId];
+            for (int i = 0; i < otherSize; i++) {
+                addPosting(wordId, base + otherList[i]);
+            }
+            lastSentence[wordId] = base + otherList[otherSize - 1];
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int wordId = 0; wordId < tokens.size(); wordId++) {
+            out.writeObject(Arrays.copyOf(postings[wordId], postingsSize[wordId]));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int capacity = INITIAL_POSTINGS;
+        while (capacity < tokens.size()) {
+            capacity *= 2;
+        }
+        postings = new int[capacity][];
+        postingsSize = new int[capacity];
+        lastSentence = new int[capacity];
+        for (int wordId = 0; wordId < tokens.size(); wordId++) {
+            int[] list = (int[]) in.readObject();
+            postings[wordId] = list;
+            postingsSize[wordId] = list.length;
+            lastSentence[wordId] = list[list.length - 1];
+        }
+        sentenceTokens = new int[64];
+    }
+
+    private void grow() {
+        int capacity = postings.length * 2;
+        postings = Arrays.copyOf(postings, capacity);
+        postingsSize = Arrays.copyOf(postingsSize, capacity);
+        lastSentence = Arrays.copyOf(lastSentence, capacity);
+    }
+
+    private void addPosting(int wordId, int sentenceId) {
+        int[] list = postings[wordId];
+        int size = postingsSize[wordId];
+        if (list == null) {
+            list = new int[INITIAL_POSTINGS];
+            postings[wordId] = list;
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, Math.max(size + (size >> 1), INITIAL_POSTINGS));
+            postings[wordId] = list;
+        }
+        list[size] = sentenceId;
+        postingsSize[wordId] = size + 1;
+    }
+
+    public int getSentenceCount() {
+        return sentences.size();
+    }
+
+    public ConcSentence getSentence(int sentenceId) {
+        return sentences.getSentence(sentenceId);
+    }
+
+    /** Таблица предложений индекса. */
+    public SentenceTable getSentenceTable() {
+        return sentences;
+    }
+
+    /**
+     * Номер слова в индексе.
+     * @param word слово в нижнем регистре.
+     * @return номер слова или -1, если слово не встречается ни в одном предложении.
+     * */
+    public int indexOf(String word) {
+        return tokens.indexOf(word);
+    }
+
+    /**
+     * Встречается ли слово в предложении.
+     * @param word слово в нижнем регистре.
+     * */
+    public boolean contains(int sentenceId, String word) {
+        int wordId = indexOf(word);
+        return wordId != -1 && sentences.containsToken(sentenceId, wordId);
+    }
+
+    /** Количество предложений, в которых встречается слово. */
+    public int getPostingsSize(int wordId) {
+        return postingsSize[wordId];
+    }
+
+    /** Номер i-го предложения, в котором встречается слово. */
+    public int getPosting(int wordId, int i) {
+        return postings[wordId][i];
+    }
+
+    /**
+     * Предложения, в которых встречается слово, в порядке их следования в тексте.
+     * */
+    public List<ConcSentence> getSentences(String word) {
+        final int wordId = indexOf(word);
+        if (wordId == -1) {
+            return Collections.emptyList();
+        }
+
+        return new AbstractList<ConcSentence>() {
+            @Override
+            public ConcSentence get(int i) {
+                if (i >= postingsSize[wordId]) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + postingsSize[wordId]);
+                }
+                return sentences.getSentence(postings[wordId][i]);
+            }
+
+            @Override
+            public int size() {
+                return postingsSize[wordId];
+            }
+        };
+    }
+}
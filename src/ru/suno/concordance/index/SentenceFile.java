@@ -0,0 +1,148 @@
+package ru.suno.concordance.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import ru.suno.concordance.ConcRef;
+
+/**
+ * Файл предложений для вывода в конкорданс: текст предложения и ссылка на страницу.
+ * <p>Предложения дописываются в конец файла, номер предложения - его смещение в файле,
+ * поэтому номера растут в порядке следования предложений, а для чтения
+ * не нужна таблица смещений в памяти.
+ * <p>Сначала файл только пишется, после {@link #finishWriting()} - только читается.
+ * Читается окнами по {@link #READ_AHEAD} байт: предложения одного слова читаются
+ * по возрастанию номеров, и следующее предложение часто уже есть в окне.
+ * */
+public class SentenceFile {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Сколько читать при промахе мимо окна: страница файла, а не весь буфер записи. */
+    private static final int READ_AHEAD = 4 * 1024;
+
+    /** Том, страница и длина текста в байтах. */
+    private static final int HEADER_SIZE = 12;
+
+    /** Предложение, прочитанное из файла. */
+    public static class Sentence {
+
+        private final String text;
+        private final int volume;
+        private final int page;
+
+        Sentence(String aText, int aVolume, int aPage) {
+            text = aText;
+            volume = aVolume;
+            page = aPage;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getVolumeNumber() {
+            return volume;
+        }
+
+        public int getPageNumber() {
+            return page;
+        }
+    }
+
+    private final File file;
+    private DataOutputStream out;
+    private long length = 0;
+
+    private FileChannel in = null;
+
+    /** Окно чтения: байты файла с позиции windowStart, до limit буфера. */
+    private ByteBuffer buffer = ByteBuffer.allocate(READ_AHEAD);
+    private long windowStart = 0;
+
+    public SentenceFile(File aFile) throws IOException {
+        file = aFile;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    /**
+     * Дописать предложение.
+     * @return номер предложения для {@link #read(long)}.
+     * */
+    public long append(String text, ConcRef ref) throws IOException {
+        long position = length;
+        byte[] bytes = text.getBytes(UTF8);
+        out.writeInt(ref != null ? ref.getVolumeNumber() : 0);
+        out.writeInt(ref != null ? ref.getPageNumber() : 0);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        length += HEADER_SIZE + bytes.length;
+        return position;
+    }
+
+    /** Закончить запись, дальше файл только читается. */
+    public void finishWriting() throws IOException {
+        out.close();
+        out = null;
+        in = new RandomAccessFile(file, "r").getChannel();
+        buffer.limit(0);
+    }
+
+    public Sentence read(long position) throws IOException {
+        if (!inWindow(position, HEADER_SIZE)) {
+            fill(position, HEADER_SIZE);
+        }
+        int offset = (int) (position - windowStart);
+        int volume = buffer.getInt(offset);
+        int page = buffer.getInt(offset + 4);
+        int size = buffer.getInt(offset + 8);
+        if (!inWindow(position, HEADER_SIZE + size)) {
+            fill(position, HEADER_SIZE + size);
+            offset = 0;
+        }
+        String text = new String(buffer.array(), offset + HEADER_SIZE, size, UTF8);
+        return new Sentence(text, volume, page);
+    }
+
+    private boolean inWindow(long position, int length) {
+        return position >= windowStart && position + length <= windowStart + buffer.limit();
+    }
+
+    /** Прочитать окно с заданного места: не меньше <code>length</code> байт, обычно {@link #READ_AHEAD}. */
+    private void fill(long position, int length) throws IOException {
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+        }
+        buffer.clear();
+        buffer.limit(Math.max(length, READ_AHEAD));
+        while (buffer.position() < length) {
+            int n = in.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Нет предложения " + position + " в " + file);
+            }
+        }
+        buffer.flip();
+        windowStart = position;
+    }
+
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+}
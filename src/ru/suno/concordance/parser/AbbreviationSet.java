@@ -0,0 +1,64 @@
+package ru.suno.concordance.parser;
+
+/**
+ * Набор сокращений (исключений из правила конца предложения).
+ * Хеш-таблица с открытой адресацией, проверка выполняется по части текста,
+ * без создания строки.
+ * */
+final class AbbreviationSet {
+
+    private final String[] slots;
+    private final int mask;
+
+    AbbreviationSet(String[] abbreviations) {
+        int capacity = 16;
+        while (capacity < abbreviations.length * 2) {
+            capacity <<= 1;
+        }
+        slots = new String[capacity];
+        mask = capacity - 1;
+        for (String abbr : abbreviations) {
+            int slot = abbr.hashCode() & mask;
+            while (slots[slot] != null && !slots[slot].equals(abbr)) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = abbr;
+        }
+    }
+
+    boolean contains(String word) {
+        return contains(word, 0, word.length());
+    }
+
+    /**
+     * Является ли часть текста сокращением.
+     * */
+    boolean contains(CharSequence text, int start, int end) {
+        // хеш как String.hashCode
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        int slot = h & mask;
+        String abbr;
+        while ((abbr = slots[slot]) != null) {
+            if (regionEquals(abbr, text, start, end)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String abbr, CharSequence text, int start, int end) {
+        if (abbr.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (abbr.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.suno.concordance.parser;
+
+/**
+ * Подчеркивание слова в предложениях (разметка RTF <code>\\ul</code> ... <code>\\ulnone</code>).
+ * <p>Результат совпадает с {@link StringFilter#underLineWords(String, String)}, но предложение
+ * переводится в нижний регистр один раз, вхождения слова ищутся за один проход, а результат
+ * собирается в один и тот же буфер.
+ * <p>Объект создается для одного слова и используется одним потоком.
+ * */
+public class Highlighter {
+
+    private static final String UNDERLINE = "\\ul ";
+    private static final String UNDERLINE_NONE = "\\ulnone ";
+
+    private final String word;
+    private final String lowerWord;
+
+    /**
+     * Слово нельзя искать за один проход: в нем есть границы слова или
+     * обратная косая черта, которые могут совпасть с уже вставленной разметкой,
+     * или длина слова меняется при переводе в нижний регистр.
+     * */
+    private final boolean slowSearch;
+
+    private final StringBuilder result = new StringBuilder();
+
+    /**
+     * @param i_word подчеркиваемое слово, регистр не важен.
+     * */
+    public Highlighter(String i_word) {
+        word = i_word.trim();
+        lowerWord = word.toLowerCase();
+
+        boolean slow = word.length() == 0 || lowerWord.length() != word.length();
+        for (int i = 0; i < word.length() && !slow; i++) {
+            char c = word.charAt(i);
+            slow = isBound(c) || c == '\\';
+        }
+        slowSearch = slow;
+    }
+
+    /**
+     * Подчеркнуть все вхождения слова в предложении, отделенные границами слова.
+     * @return предложение с разметкой. Буфер используется повторно,
+     * результат действителен до следующего вызова.
+     * */
+    public CharSequence underline(String sentence) {
+        result.setLength(0);
+        String text = sentence.trim();
+        String lowerText = text.toLowerCase();
+        if (slowSearch || lowerText.length() != text.length() || text.indexOf('\u03A3') != -1) {
+            // позиции в тексте в нижнем регистре не совпадают с исходными или
+            // нижний регистр сигмы зависит от соседних символов, в том числе от вставленной разметки
+            return result.append(StringFilter.underLineWords(text, word));
+        }
+
+        int length = word.length();
+        int copied = 0;
+        int cursor = lowerText.indexOf(lowerWord);
+        while (cursor != -1) {
+            int end = cursor + length;
+            if (hasBound(text, cursor - 1) && hasBound(text, end)) {
+                result.append(text, copied, cursor)
+                        .append(UNDERLINE)
+                        .append(text, cursor, end)
+                        .append(UNDERLINE_NONE);
+                copied = end;
+            }
+            cursor = lowerText.indexOf(lowerWord, cursor + 1);
+        }
+        return result.append(text, copied, text.length());
+    }
+
+    private static boolean hasBound(String text, int pos) {
+        return pos < 0 || pos >= text.length() || isBound(text.charAt(pos));
+    }
+
+    /** Границы слова, как в {@link StringFilter#underLineWords(String, String)}. */
+    private static boolean isBound(char c) {
+        return c == ' ' || c == '.' || c == ',' || c == ';' || c == '!' || c == '?';
+    }
+}
@@ -0,0 +1,172 @@
+package ru.suno.concordance.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import ru.suno.concordance.ConcRef;
+
+/**
+ * Поиск ссылок на страницы в тексте, который поступает по частям, без регулярных выражений.
+ * <p>Ссылка - номера тома и страницы через запятую и пробелы, в конце '\r', как в выражении
+ * <code>(\d+),\s+(\d+)\r</code>. Части текста передаются по очереди ({@link #scan(CharSequence)},
+ * {@link #scan(Reader)}), о каждой ссылке слушатель узнает сразу, как только она закончилась.
+ * <p>Ссылка может быть разорвана между частями: между частями хранится только
+ * состояние разбора ссылки, текст частей не хранится.
+ * */
+public class PageReferenceScanner {
+
+    /** Получает найденные ссылки. */
+    public interface Listener {
+
+        /**
+         * Найдена ссылка.
+         * @param start позиция начала ссылки от начала всего текста.
+         * @param end позиция после конца ссылки ('\r').
+         * */
+        void reference(ConcRef ref, long start, long end);
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // состояния разбора
+    /** Не в ссылке. */
+    private static final int OUTSIDE = 0;
+    /** Цифры тома. */
+    private static final int VOLUME = 1;
+    /** Запятая после тома. */
+    private static final int COMMA = 2;
+    /** Пробелы после запятой. */
+    private static final int SPACE = 3;
+    /** Цифры страницы. */
+    private static final int PAGE = 4;
+
+    /** Больше любого номера: номер не поместился в int. */
+    private static final long TOO_BIG = Integer.MAX_VALUE + 1L;
+
+    private final Listener listener;
+
+    private int state = OUTSIDE;
+
+    /** Количество разобранных символов. */
+    private long position = 0;
+
+    /** Начало текущей последовательности цифр и ее значение. */
+    private long numberStart;
+    private long number;
+
+    /** Начало ссылки и том - после запятой. */
+    private long referenceStart;
+    private long volume;
+
+    public PageReferenceScanner(Listener aListener) {
+        listener = aListener;
+    }
+
+    /** Разобрать очередную часть текста, например {@link java.nio.CharBuffer}. */
+    public void scan(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            next(text.charAt(i));
+        }
+    }
+
+    /** Разобрать очередную часть текста. */
+    public void scan(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            next(chars[i]);
+        }
+    }
+
+    /** Разобрать весь текст из потока, поток не закрывается. */
+    public void scan(Reader in) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            scan(buffer, 0, n);
+        }
+    }
+
+    /** Количество разобранных символов - позиция следующей части во всем тексте. */
+    public long getPosition() {
+        return position;
+    }
+
+    private void next(char c) {
+        boolean digit = c >= '0' && c <= '9';
+        switch (state) {
+        case VOLUME:
+            if (digit) {
+                addDigit(c);
+            } else if (c == ',') {
+                startReference();
+            } else {
+                state = OUTSIDE;
+            }
+            break;
+        case COMMA:
+            if (isSpace(c)) {
+                state = SPACE;
+            } else if (digit) {
+                // запятая сразу после цифр - ссылки не было, но с этих цифр может начаться новая
+                startNumber(c, VOLUME);
+            } else {
+                state = OUTSIDE;
+            }
+            break;
+        case SPACE:
+            if (digit) {
+                startNumber(c, PAGE);
+            } else if (!isSpace(c)) {
+                state = OUTSIDE;
+            }
+            break;
+        case PAGE:
+            if (digit) {
+                addDigit(c);
+            } else if (c == '\r') {
+                state = OUTSIDE;
+                listener.reference(new ConcRef(toInt(volume), toInt(number)), referenceStart, position + 1);
+            } else if (c == ',') {
+                // номер страницы оказался томом следующей ссылки
+                startReference();
+            } else {
+                state = OUTSIDE;
+            }
+            break;
+        default:
+            if (digit) {
+                startNumber(c, VOLUME);
+            }
+            break;
+        }
+        position++;
+    }
+
+    private void startNumber(char c, int aState) {
+        state = aState;
+        numberStart = position;
+        number = c - '0';
+    }
+
+    private void addDigit(char c) {
+        number = Math.min(number * 10 + (c - '0'), TOO_BIG);
+    }
+
+    private void startReference() {
+        state = COMMA;
+        referenceStart = numberStart;
+        volume = number;
+    }
+
+    /** Пробельный символ, как \s в регулярных выражениях. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int toInt(long n) {
+        if (n == TOO_BIG) {
+            throw new NumberFormatException("Слишком большой номер в ссылке на страницу");
+        }
+        return (int) n;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.suno.concordance.parser;
+
+import java.io.Serializable;
+
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.SentenceTable;
+
+/**
+ * Предложения одной страницы, разобранной без учета соседних страниц:
+ * начало и конец каждого предложения в тексте страницы.
+ * <p>Предложения добавляются в таблицу методом {@link #addTo(SentenceTable)}.
+ * Связь с последним предложением предыдущей страницы (ссылки на соседние
+ * предложения и признак разрыва) выставляется отдельно, методом
+ * {@link #linkTo(SentenceTable, int, int)}.
+ * */
+public class PageSentences implements Serializable {
+
+    private static final long serialVersionUID = -4119094789429295507L;
+
+    /** Текст страницы (после предварительной обработки). */
+    private final CharSequence text;
+    private final ConcRef reference;
+
+    /** Начало и конец предложений: begin0, end0, begin1, end1, ... */
+    private final int[] bounds;
+    private final int size;
+
+    /**
+     * Количество предложений, найденных по знакам конца предложения. Они связаны
+     * друг с другом. Остаток текста страницы (если есть) идет последним и не связан.
+     * */
+    private final int linkedCount;
+
+    /** Последнее предложение разорвано. */
+    private final boolean lastBroken;
+
+    /** Признак разрыва последнего предложения определен по его тексту. */
+    private final boolean lastBrokenChecked;
+
+    /** Номер первого предложения в таблице, в которую добавлена страница. */
+    private int first = -1;
+
+    public PageSentences(CharSequence i_text, ConcRef i_reference, int[] i_bounds, int i_size,
+            int i_linkedCount, boolean i_lastBroken, boolean i_lastBrokenChecked) {
+        text = i_text;
+        reference = i_reference;
+        bounds = i_bounds;
+        size = i_size;
+        linkedCount = i_linkedCount;
+        lastBroken = i_lastBroken;
+        lastBrokenChecked = i_lastBrokenChecked;
+    }
+
+    /** Количество предложений на странице. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавить страницу и ее предложения в конец таблицы. Предложения страницы
+     * связываются между собой, с предыдущими предложениями таблицы - нет.
+     * @return номер первого предложения страницы.
+     * */
+    public int addTo(SentenceTable table) {
+        int page = table.addPage(text, reference);
+        first = table.size();
+        for (int i = 0; i < size; i++) {
+            int id = table.addSentence(page, bounds[2 * i], bounds[2 * i + 1]);
+            if (i > 0 && i < linkedCount) {
+                table.link(id);
+            }
+        }
+        if (lastBroken) {
+            table.setBroken(first + size - 1, true);
+        }
+        return first;
+    }
+
+    /**
+     * Связать первое предложение страницы с последним предложением предыдущих страниц.
+     * Если в предыдущем предложении разрыв - то в следующем тоже.
+     * @param table таблица, в которой находятся предложения страницы.
+     * @param shift сдвиг номеров предложений, если таблица, в которую была
+     * добавлена страница, затем сама добавлена в конец таблицы <code>table</code>.
+     * @param prev последнее предложение предыдущих страниц, -1 - его нет.
+     * @return последнее предложение с учетом этой страницы - для связи со следующей страницей.
+     * */
+    public int linkTo(SentenceTable table, int shift, int prev) {
+        int firstId = first + shift;
+        if (linkedCount > 0 && prev != -1) {
+            if (prev != firstId - 1) {
+                throw new IllegalArgumentException("Предложение " + prev + " не предшествует странице");
+            }
+            table.link(firstId);
+
+            // признак разрыва, определенный по тексту последнего предложения, важнее
+            boolean firstIsChecked = lastBrokenChecked && size == 1;
+            if (table.isBroken(prev) && !firstIsChecked) {
+                table.setBroken(firstId, true);
+            }
+        }
+
+        if (size == 0) {
+            return prev;
+        }
+        return firstId + size - 1;
+    }
+}
@@ -1,54 +1,148 @@
-package ru.suno.concordance.parser;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import ru.suno.concordance.ConcPage;
-import ru.suno.concordance.ConcRef;
-
-public class PagesParser {
-    
-    public Collection<ConcPage> parseTextToPages(String allText) throws Exception {
-        Collection<ConcPage> result = new ArrayList<ConcPage>();
-                    
-        Pattern pattReference = Pattern.compile("(\\d+),\\s+(\\d+)\\r");
-        Matcher matchReference = pattReference.matcher(allText);
-        
-        // найти первую ссылку
-        if (matchReference.find()) {
-            // нашли первую ссылку, запомнить ее конец
-            int firstRefEnd = matchReference.end();
-            // создать ссылку 1
-            String volStr = matchReference.group(1);
-            String pageStr = matchReference.group(2);
-            
-            ConcRef ref = new ConcRef(Integer.parseInt(volStr.trim()), Integer.parseInt(pageStr.trim()));
-            
-            ConcPage page = null;
-            while (matchReference.find()) {    
-                // создать и занести в массив страницу от конца предыдущей ссылки до начала следующей
-                page = new ConcPage();
-                // ccылка - предыдующая найденная
-                page.setReference(ref);
-                page.setText(allText.substring(firstRefEnd, matchReference.start()));
-                // занести страницу в массив
-                result.add(page);
-                // создать очередную найденную ссылку
-                firstRefEnd = matchReference.end();
-                volStr = matchReference.group(1);
-                pageStr = matchReference.group(2);
-                ref = new ConcRef(Integer.parseInt(volStr.trim()), Integer.parseInt(pageStr.trim()));
-            } 
-            // занести последнюю страницу
-            page = new ConcPage();
-            // ccылка - предыдующая найденная
-            page.setReference(ref);
-            page.setText(allText.substring(firstRefEnd, allText.length()));
-            // занести страницу в массив
-            result.add(page);                
-        }             
-        return result;
-    }
-}
+package ru.suno.concordance.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.TextSlice;
+
+/**
+ * Разбиение текста на страницы по ссылкам. Текст передается по частям
+ * ({@link #parseNextText(String)}), страница возвращается, как только найдена ссылка
+ * в ее конце. Ссылки ищет {@link PageReferenceScanner}, поэтому каждый символ
+ * просматривается один раз, даже если ссылка разорвана между частями.
+ * */
+public class PagesParser {
+
+    private final PageReferenceScanner scanner = new PageReferenceScanner(new PageReferenceScanner.Listener() {
+        @Override
+        public void reference(ConcRef ref, long start, long end) {
+            addReference(ref, (int) start, (int) end);
+        }
+    });
+
+    /**
+     * Текст после последней найденной ссылки - страница, конец которой еще не найден.
+     * Текст до первой ссылки страницей не считается и не хранится.
+     * */
+    private final StringBuilder pendingText = new StringBuilder();
+
+    /** Ссылка для незаконченной страницы, null - ссылок еще не было. */
+    private ConcRef pendingRef = null;
+
+    /** Конец первой найденной ссылки, -1 - ссылок еще не было. */
+    private int firstReferenceEnd = -1;
+
+    // разбор очередной части текста
+    private String chunk;
+    private int chunkStart;
+    /** Незаконченная страница вместе с частью, null - в части еще не было ссылок. */
+    private String allText;
+    private int allTextStart;
+    private int lastRefEnd;
+    private Collection<ConcPage> pages;
+
+    public PagesParser() {
+    }
+
+    /**
+     * Разборщик для текста, который начинается сразу после ссылки.
+     * @param aPendingRef ссылка, к которой относится начало текста.
+     * */
+    public PagesParser(ConcRef aPendingRef) {
+        pendingRef = aPendingRef;
+    }
+
+    public Collection<ConcPage> parseTextToPages(String allText) throws Exception {
+        Collection<ConcPage> result = parseNextText(allText);
+        result.addAll(finish());
+        return result;
+    }
+
+    /**
+     * Разбивает на страницы очередную часть текста (например, очередной документ).
+     * Возвращает только законченные страницы, остаток текста после последней
+     * ссылки запоминается до следующего вызова.
+     * <p>Текст до первой ссылки страницей не считается.
+     * */
+    public Collection<ConcPage> parseNextText(String text) {
+        Collection<ConcPage> result = new ArrayList<ConcPage>();
+        pages = result;
+        chunk = text;
+        chunkStart = (int) scanner.getPosition();
+        allText = null;
+        scanner.scan(text);
+
+        if (allText != null) {
+            pendingText.setLength(0);
+            pendingText.append(allText, lastRefEnd, allText.length());
+        } else if (pendingRef != null) {
+            // ссылок не было - страница продолжается
+            pendingText.append(text);
+        }
+        chunk = null;
+        allText = null;
+        pages = null;
+        return result;
+    }
+
+    /** Найдена ссылка [start, end) во всем тексте: закончить предыдущую страницу. */
+    private void addReference(ConcRef ref, int start, int end) {
+        if (firstReferenceEnd == -1) {
+            firstReferenceEnd = end;
+        }
+        if (allText == null) {
+            // страницы - части текста, без копирования; незаконченная страница
+            // соединяется с частью один раз, при первой ссылке в части
+            allTextStart = chunkStart - pendingText.length();
+            allText = pendingText.length() == 0 ? chunk : pendingText + chunk;
+            lastRefEnd = 0;
+        }
+        if (pendingRef != null) {
+            // страница от конца предыдущей ссылки до начала следующей
+            pages.add(createPage(pendingRef, new TextSlice(allText, lastRefEnd, start - allTextStart)));
+        }
+        lastRefEnd = end - allTextStart;
+        pendingRef = ref;
+    }
+
+    /**
+     * Завершает разбиение: возвращает последнюю страницу (от последней ссылки до конца текста).
+     * */
+    public Collection<ConcPage> finish() {
+        Collection<ConcPage> result = new ArrayList<ConcPage>();
+        if (pendingRef != null) {
+            // ccылка - предыдующая найденная
+            result.add(createPage(pendingRef, pendingText.toString()));
+        }
+        pendingText.setLength(0);
+        pendingRef = null;
+        return result;
+    }
+
+    /** Ссылка для незаконченной страницы, null - ссылок еще не было. */
+    public ConcRef getPendingRef() {
+        return pendingRef;
+    }
+
+    /** Текст после последней найденной ссылки, пустой - ссылок еще не было. */
+    public String getPendingText() {
+        return pendingText.toString();
+    }
+
+    /**
+     * Позиция конца первой найденной ссылки во всем переданном тексте.
+     * @return -1, если ссылок не было.
+     * */
+    public int getFirstReferenceEnd() {
+        return firstReferenceEnd;
+    }
+
+    private ConcPage createPage(ConcRef ref, CharSequence text) {
+        ConcPage page = new ConcPage();
+        page.setReference(ref);
+        page.setText(text);
+        return page;
+    }
+}
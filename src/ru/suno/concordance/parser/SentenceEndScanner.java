@@ -0,0 +1,66 @@
+package ru.suno.concordance.parser;
+
+/**
+ * Поиск знаков конца предложения за один проход по тексту, без регулярных выражений.
+ * <p>Конец предложения - непрерывная последовательность точек, '?', '!' и пар "\n\r",
+ * как в выражении <code>(\.|\?|\!|\n\r)+</code>. Используется так же, как Matcher:
+ * {@link #find()}, затем {@link #start()} и {@link #end()}.
+ * */
+final class SentenceEndScanner {
+
+    private final CharSequence text;
+    private final int length;
+
+    private int start = -1;
+    private int end = 0;
+
+    SentenceEndScanner(CharSequence aText) {
+        text = aText;
+        length = aText.length();
+    }
+
+    /**
+     * Найти следующий конец предложения после предыдущего.
+     * @return false, если больше нет.
+     * */
+    boolean find() {
+        int pos = end;
+        int len = 0;
+        while (pos < length && (len = markLength(pos)) == 0) {
+            pos++;
+        }
+        if (pos == length) {
+            start = -1;
+            end = length;
+            return false;
+        }
+        start = pos;
+        do {
+            pos += len;
+        } while (pos < length && (len = markLength(pos)) != 0);
+        end = pos;
+        return true;
+    }
+
+    /** Начало найденного конца предложения. */
+    int start() {
+        return start;
+    }
+
+    /** Позиция после найденного конца предложения. */
+    int end() {
+        return end;
+    }
+
+    /** Длина знака конца предложения в позиции, 0 - знака нет. */
+    private int markLength(int pos) {
+        char c = text.charAt(pos);
+        if (c == '.' || c == '?' || c == '!') {
+            return 1;
+        }
+        if (c == '\n' && pos + 1 < length && text.charAt(pos + 1) == '\r') {
+            return 2;
+        }
+        return 0;
+    }
+}
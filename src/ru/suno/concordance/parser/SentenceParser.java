@@ -1,179 +1,300 @@
-package ru.suno.concordance.parser;
-
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import ru.suno.concordance.ConcRef;
-import ru.suno.concordance.ConcSentence;
-import ru.suno.concordance.utils.IWordFile;
-import ru.suno.concordance.utils.MSWordFile;
-
-public class SentenceParser {
-    
-    Collection<String> exclusions = null;
-    
-    private Collection<String> getAllExclusions() {
-        if (exclusions==null) {
-            exclusions = new ArrayList<String>();
-            File addSymbolsFile = new File("./add/exeptions.doc");
-            IWordFile wordReader = new MSWordFile();            
-            String allExcepts = wordReader.readWordFileContent(addSymbolsFile);
-                        
-            StringTokenizer st = new StringTokenizer(allExcepts, "\r\n");       
-            while (st.hasMoreTokens()) {
-                exclusions.add(st.nextToken().trim());
-            }
-        }
-        
-        return exclusions;
-    }
-    
-    /**
-     * Получает коллекцию предложений из текста. Предложения разделены точками.
-     * Сокращения концом предложения не считаются.
-     * */
-    public final Collection<ConcSentence> getAllSentencies(final String srcText, final ConcRef ref, final ConcSentence prevSentence) {        
-        Collection<ConcSentence> result = new ArrayList<ConcSentence>();
-        
-        ConcSentence previousSentence = prevSentence;
-        
-        String text = StringFilter.preprocessSentence(srcText);
-        
-        Pattern pattSentenceEnd = Pattern.compile("(\\.|\\?|\\!|\\n\\r)+");
-        Matcher matchSentenceEnd = pattSentenceEnd.matcher(text);
-        
-        int sentenceStart = 0;
-        int sentenceEnd = 0;
-        String sentence;
-        String lastWord;
-        
-        boolean isPreviousBroken = false;
-        if (prevSentence!=null) {
-            isPreviousBroken = prevSentence.isBroken();
-        }
-
-        ConcSentence sent = null;
-        while (matchSentenceEnd.find()) {
-            // Получить предложение
-            sentenceEnd = matchSentenceEnd.end();
-            sentence = text.substring(sentenceStart, sentenceEnd);
-            
-            // получить последнее слово в предложении
-            lastWord = findLastWord(sentence);
-
-            // проверить, не является ли последнее найденное слово исключением
-            if (getAllExclusions().contains(lastWord)) {
-                // слово является исключением. перейти к следующему слову.
-                continue;
-            }
-               
-            // занести предложение в массив
-            sent = new ConcSentence(sentence);
-            
-            // если в предыдущем предложении разрыв - то в следующем тоже.
-            if (isPreviousBroken) {
-                sent.setBroken(true);
-                isPreviousBroken = false;
-            }
-            
-            sent.setPreviousSentence(previousSentence);
-            
-            sent.setSentBeginPos(matchSentenceEnd.start());
-            sent.setSentEndPos(matchSentenceEnd.end());
-            sent.setReference(ref);
-            result.add(sent);
-            
-            if (previousSentence!=null) {
-                previousSentence.setNextSentence(sent);
-            }
-            previousSentence = sent;
-                
-            // Получить позицию где начинается следующее предложение 
-            sentenceStart = matchSentenceEnd.end();
-            if (sentenceStart + 1 <= text.length()) {
-                sentenceStart++;
-            }
-        }
-        
-        // проверить, осталось ли еще что-нибудь в конце...
-        if (sentenceStart < text.length()) {            
-            // определить конец предложения
-
-            // если нет, то использовать остаток текста как предложение до конца
-            sentence = text.substring(sentenceStart, text.length());
-            
-            // занести предложение в массив            
-            sent = new ConcSentence(sentence);
-            sent.setReference(ref);
-            result.add(sent);                
-        }
-        
-        // проверить на разрыв страницы...
-        if (sent!=null) {
-            for (int cursor = sent.getSourceSentence().length() - 1; cursor > 0; cursor--) {
-                char c = sent.getSourceSentence().charAt(cursor);
-                 
-                if (!Character.isWhitespace(c) & !Character.isLetterOrDigit(c)) {                
-                    if (c == '.') {
-                        // проверить, не сокращение ли это...
-                        int startShortPos = sent.getSourceSentence().trim().lastIndexOf(' ', cursor);
-                        if (startShortPos == -1) {
-                            startShortPos = 0;
-                        }                    
-                        String possibleShorting = sent.getSourceSentence().substring(startShortPos, cursor);
-                        // нашли сокращение на месте разрыва предложения
-                        if (getAllExclusions().contains(possibleShorting)) {
-                            sent.setBroken(true);
-                            break;
-                        } else {
-                            sent.setBroken(false);
-                            break;
-                        }
-                    } else if (c != '?' && c != '!') {
-                        sent.setBroken(true);
-                        break;                    
-                    } else {
-                        sent.setBroken(false);
-                        break;
-                    }
-                } else if (Character.isLetterOrDigit(c)) {
-                	// не нашли точку в конце предложения - значит разрыв на следующую страницу
-                    sent.setBroken(true);
-                    break;                                    
-                } else {
-                	// все что не относиться к разрывам - не разрывы
-                    sent.setBroken(false);
-                    break; 
-                }
-            }
-        }
-
-        // пройтись по всем словам где есть точка. 
-        return result;
-    }
-    
-    
-    public String findLastWord(String text) {
-        String result = "";
-        
-        // найти начало слова от точки
-        StringTokenizer st = new StringTokenizer(text); //,"\r\n?!. ");       
-        while (st.hasMoreTokens()) {
-            result = st.nextToken();
-        }
-        
-        // quick fix for end of sentence... replace later
-        if (result.trim().endsWith("!") || result.trim().endsWith("?")) {
-            StringTokenizer fixString = new StringTokenizer(result, "?!");
-            while (fixString.hasMoreTokens()) {
-                result = fixString.nextToken();
-            }
-        }
-        
-        return result;
-    }
-}
+package ru.suno.concordance.parser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.RecursiveAction;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.SentenceTable;
+import ru.suno.concordance.utils.IWordFile;
+import ru.suno.concordance.utils.MSWordFile;
+import ru.suno.concordance.utils.ProcessingMetrics;
+
+public class SentenceParser {
+    
+    /** Количество страниц, которые не имеет смысла делить между потоками. */
+    private static final int PAGES_PER_TASK = 8;
+    
+    /** Сокращения, загружаются один раз при первом обращении. */
+    private volatile AbbreviationSet exclusions = null;
+    
+    /** Без блокировки после загрузки: страницы разбираются параллельно. */
+    private AbbreviationSet getAllExclusions() {
+        AbbreviationSet result = exclusions;
+        if (result == null) {
+            synchronized (this) {
+                result = exclusions;
+                if (result == null) {
+                    result = loadExclusions();
+                    exclusions = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    private static AbbreviationSet loadExclusions() {
+        List<String> allExclusions = new ArrayList<String>();
+        File addSymbolsFile = new File("./add/exeptions.doc");
+        IWordFile wordReader = new MSWordFile();            
+        String allExcepts = wordReader.readWordFileContent(addSymbolsFile);
+                    
+        StringTokenizer st = new StringTokenizer(allExcepts, "\r\n");       
+        while (st.hasMoreTokens()) {
+            allExclusions.add(st.nextToken().trim());
+        }
+        return new AbbreviationSet(allExclusions.toArray(new String[allExclusions.size()]));
+    }
+    
+    /**
+     * Получает коллекцию предложений из текста. Предложения разделены точками.
+     * Сокращения концом предложения не считаются.
+     * @param prevSentence последнее предложение предыдущего текста или null.
+     * Предложения текста добавляются в ту же таблицу и связываются с ним.
+     * */
+    public final Collection<ConcSentence> getAllSentencies(final CharSequence srcText, final ConcRef ref, final ConcSentence prevSentence) {        
+        SentenceTable table = prevSentence != null ? prevSentence.getTable() : new SentenceTable();
+        PageSentences page = splitPage(srcText, ref);
+        page.addTo(table);
+        page.linkTo(table, 0, prevSentence != null ? prevSentence.getId() : -1);
+        
+        List<ConcSentence> result = new ArrayList<ConcSentence>();
+        for (int id = table.size() - page.size(); id < table.size(); id++) {
+            result.add(table.getSentence(id));
+        }
+        return result;
+    }
+    
+    /**
+     * Разбивает текст страницы на предложения, не связывая их с предыдущей страницей.
+     * Не зависит от других страниц, поэтому страницы можно разбирать в любом порядке,
+     * а затем связать по порядку через {@link PageSentences#linkTo(SentenceTable, int, int)}.
+     * */
+    public final PageSentences splitPage(final CharSequence srcText, final ConcRef ref) {        
+        // начало и конец предложений
+        int[] bounds = new int[16];
+        int count = 0;
+        
+        CharSequence text = StringFilter.preprocessSentence(srcText);
+        
+        SentenceEndScanner matchSentenceEnd = new SentenceEndScanner(text);
+        
+        int sentenceStart = 0;
+        int sentenceEnd = 0;
+        
+        while (matchSentenceEnd.find()) {
+            sentenceEnd = matchSentenceEnd.end();
+
+            // проверить, не является ли последнее слово в предложении исключением
+            if (isLastWordExclusion(text, sentenceStart, sentenceEnd)) {
+                // слово является исключением. перейти к следующему слову.
+                continue;
+            }
+               
+            // занести предложение в массив
+            if (2 * count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[2 * count] = sentenceStart;
+            bounds[2 * count + 1] = sentenceEnd;
+            count++;
+                
+            // Получить позицию где начинается следующее предложение 
+            sentenceStart = matchSentenceEnd.end();
+            if (sentenceStart + 1 <= text.length()) {
+                sentenceStart++;
+            }
+        }
+        int linkedCount = count;
+        
+        // проверить, осталось ли еще что-нибудь в конце...
+        if (sentenceStart < text.length()) {            
+            // определить конец предложения
+
+            // если нет, то использовать остаток текста как предложение до конца
+            if (2 * count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length + 2);
+            }
+            bounds[2 * count] = sentenceStart;
+            bounds[2 * count + 1] = text.length();
+            count++;
+        }
+        
+        // проверить на разрыв страницы...
+        boolean lastBroken = false;
+        boolean lastBrokenChecked = false;
+        if (count > 0) {
+            String lastSentence = text.subSequence(bounds[2 * count - 2], bounds[2 * count - 1]).toString();
+            for (int cursor = lastSentence.length() - 1; cursor > 0; cursor--) {
+                lastBrokenChecked = true;
+                char c = lastSentence.charAt(cursor);
+                 
+                if (!Character.isWhitespace(c) & !Character.isLetterOrDigit(c)) {                
+                    if (c == '.') {
+                        // проверить, не сокращение ли это...
+                        int startShortPos = lastSentence.trim().lastIndexOf(' ', cursor);
+                        if (startShortPos == -1) {
+                            startShortPos = 0;
+                        }                    
+                        // нашли сокращение на месте разрыва предложения
+                        lastBroken = getAllExclusions().contains(lastSentence, startShortPos, cursor);
+                        break;
+                    } else if (c != '?' && c != '!') {
+                        lastBroken = true;
+                        break;                    
+                    } else {
+                        lastBroken = false;
+                        break;
+                    }
+                } else if (Character.isLetterOrDigit(c)) {
+                	// не нашли точку в конце предложения - значит разрыв на следующую страницу
+                    lastBroken = true;
+                    break;                                    
+                } else {
+                	// все что не относиться к разрывам - не разрывы
+                    lastBroken = false;
+                    break; 
+                }
+            }
+        }
+
+        return new PageSentences(text, ref, bounds, count, linkedCount, lastBroken, lastBrokenChecked);
+    }
+    
+    
+    /**
+     * Разбивает страницы на предложения параллельно (в текущем пуле fork/join).
+     * Предложения соседних страниц не связываются, их нужно связать по порядку
+     * через {@link PageSentences#linkTo(SentenceTable, int, int)}.
+     * @return предложения страниц в порядке страниц.
+     * */
+    public final List<PageSentences> splitPages(List<ConcPage> pages) {
+        return splitPages(pages, null);
+    }
+    
+    /**
+     * То же, что {@link #splitPages(List)}, с замером этапа
+     * {@link ProcessingMetrics#SENTENCES}: каждая часть страниц замеряется в своем потоке.
+     * @param metrics замеры, null - не нужны.
+     * */
+    public final List<PageSentences> splitPages(List<ConcPage> pages, ProcessingMetrics metrics) {
+        PageSentences[] result = new PageSentences[pages.size()];
+        new SplitPagesTask(pages, result, 0, pages.size(), metrics).invoke();
+        return Arrays.asList(result);
+    }
+    
+    /** Разбиение части страниц на предложения. */
+    private class SplitPagesTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = -2280409871207435178L;
+
+        private final List<ConcPage> pages;
+        private final PageSentences[] result;
+        private final int from;
+        private final int to;
+        private final ProcessingMetrics metrics;
+        
+        SplitPagesTask(List<ConcPage> aPages, PageSentences[] aResult, int aFrom, int aTo, ProcessingMetrics aMetrics) {
+            pages = aPages;
+            result = aResult;
+            from = aFrom;
+            to = aTo;
+            metrics = aMetrics;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PAGES_PER_TASK) {
+                ProcessingMetrics.Sample sample = metrics != null ? metrics.begin(ProcessingMetrics.SENTENCES) : null;
+                int sentences = 0;
+                for (int i = from; i < to; i++) {
+                    ConcPage page = pages.get(i);
+                    result[i] = splitPage(page.getText(), page.getReference());
+                    sentences += result[i].size();
+                }
+                if (sample != null) {
+                    sample.end(to - from, sentences);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SplitPagesTask(pages, result, from, middle, metrics),
+                          new SplitPagesTask(pages, result, middle, to, metrics));
+            }
+        }
+    }
+    
+    /**
+     * Является ли исключением последнее слово части текста. Слово определяется
+     * так же, как в {@link #findLastWord(String)}, но без разбора всего текста:
+     * просмотром назад от конца.
+     * */
+    private boolean isLastWordExclusion(CharSequence text, int from, int to) {
+        // последнее слово, разделители - как у StringTokenizer
+        int wordEnd = to;
+        while (wordEnd > from && isSpace(text.charAt(wordEnd - 1))) {
+            wordEnd--;
+        }
+        int wordStart = wordEnd;
+        while (wordStart > from && !isSpace(text.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        
+        // quick fix for end of sentence: слово до '!' или '?'
+        int trimmedEnd = wordEnd;
+        while (trimmedEnd > wordStart && text.charAt(trimmedEnd - 1) <= ' ') {
+            trimmedEnd--;
+        }
+        char last = trimmedEnd > wordStart ? text.charAt(trimmedEnd - 1) : ' ';
+        if (last == '!' || last == '?') {
+            int partEnd = wordEnd;
+            while (partEnd > wordStart && isQuestionOrExclamation(text.charAt(partEnd - 1))) {
+                partEnd--;
+            }
+            if (partEnd > wordStart) {
+                int partStart = partEnd;
+                while (partStart > wordStart && !isQuestionOrExclamation(text.charAt(partStart - 1))) {
+                    partStart--;
+                }
+                wordStart = partStart;
+                wordEnd = partEnd;
+            }
+        }
+        
+        return getAllExclusions().contains(text, wordStart, wordEnd);
+    }
+    
+    /** Разделители слов StringTokenizer по умолчанию. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+    
+    private static boolean isQuestionOrExclamation(char c) {
+        return c == '?' || c == '!';
+    }
+    
+    public String findLastWord(String text) {
+        String result = "";
+        
+        // найти начало слова от точки
+        StringTokenizer st = new StringTokenizer(text); //,"\r\n?!. ");       
+        while (st.hasMoreTokens()) {
+            result = st.nextToken();
+        }
+        
+        // quick fix for end of sentence... replace later
+        if (result.trim().endsWith("!") || result.trim().endsWith("?")) {
+            StringTokenizer fixString = new StringTokenizer(result, "?!");
+            while (fixString.hasMoreTokens()) {
+                result = fixString.nextToken();
+            }
+        }
+        
+        return result;
+    }
+}
@@ -1,97 +1,154 @@
-package ru.suno.concordance.parser;
-
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import ru.suno.concordance.ConcWord;
-import ru.suno.concordance.utils.IWordFile;
-import ru.suno.concordance.utils.MSWordFile;
-
-/**
- * Разбивает текст на слова и предложения, связывает каждое слово с одним
- * или несколькими предложениями.
- * */
-public class WordParser {
-    
-    //private String m_addSymbols;
-    private Collection<Character> str;
-    
-    private String readAdditionalSymbols() {
-        String m_addSymbols;
-        
-        if (str == null) {
-            str = new ArrayList<Character>();
-            //StringBuffer result = new StringBuffer();
-            File addSymbolsFile = new File("./add/symbols.doc");
-            IWordFile wordReader = new MSWordFile();
-            m_addSymbols = wordReader.readWordFileContent(addSymbolsFile);
-            
-            m_addSymbols = m_addSymbols.replaceAll("\r\n", "");
-            
-            for (int i=0; i < m_addSymbols.length(); i++) {                
-                if (!str.contains(m_addSymbols.charAt(i))) {
-                    str.add('\\');
-                    str.add(m_addSymbols.charAt(i));
-                }
-            }
-        }
-        
-        StringBuffer result = new StringBuffer();
-        
-        for (Iterator<Character> iterator = str.iterator(); iterator.hasNext();) {
-            Character character = iterator.next();
-            result.append(character);
-        }
-        
-        return result.toString();
-    }
-
-    /**
-     * Returns collection of (concordance)words from given string.
-     * @param file Pre-formatted text to parse.
-     * @return Collection of (concordance)words from text.
-     */
-    public final Collection<ConcWord> getAllWords(String text) {        
-        final List<ConcWord> result = new ArrayList<ConcWord>();
-
-        // Только слова, без чисел
-        Pattern pattWord = 
-            Pattern.compile("[A-Za-zА-Яа-я" + readAdditionalSymbols() +"]+");
-        Matcher matchWord = pattWord.matcher(text);
-        String word;
-        Collection<ConcWord> allWords = new ArrayList<ConcWord>();
-        while (matchWord.find()) {
-            word = text.substring(matchWord.start(), matchWord.end());
-            
-            // TODO: найти лучший способ для фильтрации спец. символов
-            //word = StringFilter.replaceAtBounds(word, ")");
-            //word = StringFilter.replaceAtBounds(word, "(");
-            //word = BoundsFilter.replaceAtBounds(word, "[");
-            //word = BoundsFilter.replaceAtBounds(word, "]");
-            
-            ConcWord concWord = new ConcWord(word);
-            allWords.add(concWord);
-        }
-        
-        // отсортировать слова по алфавиту
-        // расположить их в алфавитном порядке
-        result.addAll(allWords);
-        Collections.sort(result);
-        allWords.clear();
-        
-        return result;
-    }
-    
-    public static void main(String argc[]) {
-        /*WordParser wp = new WordParser();
-        wp.readAdditionalSymbols();*/
-        String wp = "\u00Df";
-        System.out.println(wp);
-    }
-}
+package ru.suno.concordance.parser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.utils.IWordFile;
+import ru.suno.concordance.utils.MSWordFile;
+
+/**
+ * Разбивает текст на слова и предложения, связывает каждое слово с одним
+ * или несколькими предложениями.
+ * */
+public class WordParser {
+    
+    //private String m_addSymbols;
+    private Collection<Character> str;
+
+    /** Слово: буквы и дополнительные символы. */
+    private WordTokenizer tokenizer;
+    
+    private String readAdditionalSymbols() {
+        String m_addSymbols;
+        
+        if (str == null) {
+            str = new ArrayList<Character>();
+            //StringBuffer result = new StringBuffer();
+            File addSymbolsFile = new File("./add/symbols.doc");
+            IWordFile wordReader = new MSWordFile();
+            m_addSymbols = wordReader.readWordFileContent(addSymbolsFile);
+            
+            m_addSymbols = m_addSymbols.replaceAll("\r\n", "");
+            
+            for (int i=0; i < m_addSymbols.length(); i++) {                
+                if (!str.contains(m_addSymbols.charAt(i))) {
+                    str.add('\\');
+                    str.add(m_addSymbols.charAt(i));
+                }
+            }
+        }
+        
+        StringBuffer result = new StringBuffer();
+        
+        for (Iterator<Character> iterator = str.iterator(); iterator.hasNext();) {
+            Character character = iterator.next();
+            result.append(character);
+        }
+        
+        return result.toString();
+    }
+
+    /**
+     * Returns collection of (concordance)words from given string.
+     * <p>Слова идут в алфавитном порядке, по объекту на каждое употребление.
+     * Для подсчета слов лучше {@link #countWords(CharSequence, ConcWordTable)}.
+     * @param file Pre-formatted text to parse.
+     * @return Collection of (concordance)words from text.
+     */
+    public final Collection<ConcWord> getAllWords(String text) {        
+        final List<String> tokens = new ArrayList<String>();
+        final ConcWordTable words = new ConcWordTable();
+        final int[][] tokenIds = {new int[64]};
+
+        getTokenizer().tokenize(text, new WordTokenizer.TokenHandler() {
+            public void token(CharSequence src, int start, int end) {
+                String token = src.subSequence(start, end).toString();
+                if (tokens.size() == tokenIds[0].length) {
+                    tokenIds[0] = Arrays.copyOf(tokenIds[0], tokens.size() * 2);
+                }
+                tokenIds[0][tokens.size()] = words.add(token);
+                tokens.add(token);
+            }
+        });
+        
+        // отсортировать слова по алфавиту: различные слова сортируются
+        // по ключам, употребления раскладываются по порядку слов
+        // (употребления одного слова - в порядке текста)
+        int[] starts = new int[words.size()];
+        int position = 0;
+        for (int id : words.getIdsAlphabetically()) {
+            starts[id] = position;
+            position += words.getCount(id);
+        }
+        ConcWord[] sorted = new ConcWord[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            sorted[starts[tokenIds[0][i]]++] = new ConcWord(tokens.get(i));
+        }
+        
+        return new ArrayList<ConcWord>(Arrays.asList(sorted));
+    }
+
+    /**
+     * Добавить в словарь все слова текста.
+     * */
+    public final void countWords(CharSequence text, ConcWordTable words) {
+        countWords(text, 0, text.length(), words);
+    }
+
+    /**
+     * Добавить в словарь все слова части текста. Строка создается только
+     * для слова, которого еще нет в словаре.
+     * */
+    public final void countWords(CharSequence text, int start, int end, final ConcWordTable words) {
+        getTokenizer().tokenize(text, start, end, new WordTokenizer.TokenHandler() {
+            public void token(CharSequence src, int wordStart, int wordEnd) {
+                words.add(src, wordStart, wordEnd);
+            }
+        });
+    }
+    
+    /**
+     * Позиция, с которой в конце текста начинается слово, которое может
+     * продолжиться в следующем тексте. Если текст не заканчивается буквой - длина текста.
+     * */
+    public final int getTrailingWordStart(String text) {
+        return getTokenizer().getTrailingWordStart(text);
+    }
+
+    /**
+     * Позиция конца слова, с которого начинается текст и которое может
+     * быть продолжением слова из предыдущего текста. Если текст не начинается буквой - 0.
+     * */
+    public final int getLeadingWordEnd(String text) {
+        return getTokenizer().getLeadingWordEnd(text);
+    }
+
+    /**
+     * Разборщик слов, строится один раз.
+     * */
+    public synchronized WordTokenizer getTokenizer() {
+        if (tokenizer == null) {
+            // Только слова, без чисел
+            tokenizer = new WordTokenizer(Pattern.compile(getWordCharClass()));
+        }
+        return tokenizer;
+    }
+
+    private String getWordCharClass() {
+        return "[A-Za-zА-Яа-я" + readAdditionalSymbols() + "]";
+    }
+
+    public static void main(String argc[]) {
+        /*WordParser wp = new WordParser();
+        wp.readAdditionalSymbols();*/
+        String wp = "\u00Df";
+        System.out.println(wp);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.suno.concordance.parser;
+
+import java.util.regex.Pattern;
+
+/**
+ * Разбивает текст на слова по таблице символов слова, без регулярных выражений.
+ * <p>Таблица строится один раз по классу символов (буквы и дополнительные символы),
+ * дальше разбор - один проход по тексту. Найденные слова передаются обработчику
+ * позициями в тексте, без создания строк.
+ * <p>Объект не изменяется после создания, поэтому один разборщик можно
+ * использовать из нескольких потоков.
+ * */
+public final class WordTokenizer {
+
+    /** Получает слова текста по одному. */
+    public interface TokenHandler {
+
+        /**
+         * Очередное слово.
+         * @param text разбираемый текст.
+         * @param start начало слова в тексте.
+         * @param end конец слова в тексте (не включая).
+         * */
+        void token(CharSequence text, int start, int end);
+    }
+
+    /** Признак символа слова для каждого символа. */
+    private final boolean[] wordChars = new boolean[Character.MAX_VALUE + 1];
+
+    /**
+     * @param wordCharClass класс символов слова, например <code>[A-Za-z]</code>.
+     * Таблица совпадает с тем, что находит регулярное выражение с этим классом.
+     * */
+    public WordTokenizer(Pattern wordCharClass) {
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            wordChars[i] = wordCharClass.matcher(String.valueOf((char) i)).matches();
+        }
+    }
+
+    public boolean isWordChar(char c) {
+        return wordChars[c];
+    }
+
+    /**
+     * Найти все слова в части текста.
+     * */
+    public void tokenize(CharSequence text, int start, int end, TokenHandler handler) {
+        int pos = start;
+        while (pos < end) {
+            // пропустить разделители
+            while (pos < end && !wordChars[text.charAt(pos)]) {
+                pos++;
+            }
+            if (pos == end) {
+                break;
+            }
+            int wordStart = pos;
+            while (pos < end && wordChars[text.charAt(pos)]) {
+                pos++;
+            }
+            handler.token(text, wordStart, pos);
+        }
+    }
+
+    public void tokenize(CharSequence text, TokenHandler handler) {
+        tokenize(text, 0, text.length(), handler);
+    }
+
+    /**
+     * Позиция конца слова, с которого начинается текст. Если текст не начинается буквой - 0.
+     * */
+    public int getLeadingWordEnd(CharSequence text) {
+        int end = 0;
+        while (end < text.length() && wordChars[text.charAt(end)]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Позиция, с которой начинается слово в конце текста. Если текст не заканчивается буквой - длина текста.
+     * */
+    public int getTrailingWordStart(CharSequence text) {
+        int start = text.length();
+        while (start > 0 && wordChars[text.charAt(start - 1)]) {
+            start--;
+        }
+        return start;
+    }
+}
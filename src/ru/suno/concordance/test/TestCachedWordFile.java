@@ -0,0 +1,88 @@
+package ru.suno.concordance.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.utils.CachedWordFile;
+import ru.suno.concordance.utils.PlainTextFile;
+
+public class TestCachedWordFile extends TestCase {
+
+	/** Считает чтения документов мимо кеша. */
+	private static class CountingFile extends PlainTextFile {
+
+		int reads = 0;
+
+		@Override
+		public String readWordFileContent(File inFile) {
+			reads++;
+			return super.readWordFileContent(inFile);
+		}
+	}
+
+	private File dir;
+
+	@Override
+	protected void setUp() throws IOException {
+		dir = File.createTempFile("concordance-cache", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() {
+		delete(dir);
+	}
+
+	/** Текст изменившегося документа остается, пока он нужен такому же документу. */
+	public void testSharedTextIsKept() {
+		File first = new File(dir, "first.txt");
+		File second = new File(dir, "second.txt");
+		CountingFile source = new CountingFile();
+		source.writeTextFileContent(first, "Одинаковый текст.");
+		source.writeTextFileContent(second, "Одинаковый текст.");
+
+		CachedWordFile cache = new CachedWordFile(source);
+		cache.readWordFileContent(first);
+		cache.readWordFileContent(second);
+		assertEquals(1, source.reads);
+		assertEquals(1, countTexts());
+
+		// первый документ изменился, его прежний текст нужен второму
+		source.writeTextFileContent(first, "Измененный текст документа.");
+		assertEquals("Измененный текст документа.", cache.readWordFileContent(first));
+		cache.removeUnused();
+		assertEquals(2, countTexts());
+		assertEquals("Одинаковый текст.", cache.readWordFileContent(second));
+		assertEquals(2, source.reads);
+
+		// второй документ тоже изменился - прежний текст больше не нужен
+		source.writeTextFileContent(second, "Измененный текст документа.");
+		cache.readWordFileContent(second);
+		cache.removeUnused();
+		assertEquals(1, countTexts());
+		assertEquals(2, source.reads);
+	}
+
+	private int countTexts() {
+		File[] files = new File(dir, CachedWordFile.CACHE_DIR).listFiles();
+		int count = 0;
+		for (File file : files) {
+			if (file.getName().endsWith(".txt")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
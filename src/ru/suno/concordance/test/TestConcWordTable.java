@@ -0,0 +1,149 @@
+package ru.suno.concordance.test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.WordCollator;
+
+public class TestConcWordTable extends TestCase {
+
+	public void testCountsAreCaseInsensitive() {
+		ConcWordTable table = new ConcWordTable();
+		int id = table.add("Слово");
+		assertEquals(id, table.add("слово"));
+		assertEquals(id, table.add(new ConcWord("СЛОВО")));
+		table.add("другое");
+
+		assertEquals(2, table.size());
+		assertEquals(3, table.getCount(id));
+		assertEquals(id, table.indexOf("слово"));
+		assertEquals(-1, table.indexOf("Слово"));
+		// первое употребление остается представителем слова
+		assertEquals("Слово", table.getWord(id).getSourceWord());
+	}
+
+	public void testGrowKeepsAllWords() {
+		ConcWordTable table = new ConcWordTable(4);
+		for (int i = 0; i < 10000; i++) {
+			table.add("w" + i);
+			table.add("w" + (i / 2));
+		}
+		assertEquals(10000, table.size());
+		assertEquals(3, table.getCount(table.indexOf("w10")));
+		assertEquals(1, table.getCount(table.indexOf("w9999")));
+	}
+
+	public void testOrderings() {
+		ConcWordTable table = new ConcWordTable();
+		table.add("в");
+		table.add("б");
+		table.add("а");
+		table.add("б");
+		table.add("в");
+
+		List<ConcWord> alpha = table.getWordsAlphabetically();
+		assertEquals("а", alpha.get(0).getWord());
+		assertEquals("б", alpha.get(1).getWord());
+		assertEquals("в", alpha.get(2).getWord());
+
+		List<ConcWord> freq = table.getWordsByFrequency();
+		assertEquals("б", freq.get(0).getWord());
+		assertEquals(2, freq.get(0).getManualNumberOfOccurences());
+		assertEquals("в", freq.get(1).getWord());
+		assertEquals("а", freq.get(2).getWord());
+	}
+
+	public void testIdsByFrequency() {
+		ConcWordTable table = new ConcWordTable();
+		String[] text = {"г", "в", "б", "а", "б", "в", "г", "г", "д"};
+		for (String word : text) {
+			table.add(word);
+		}
+
+		List<ConcWord> freq = table.getWordsByFrequency();
+		int[] ids = table.getIdsByFrequency();
+		assertEquals(freq.size(), ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(freq.get(i).getWord(), table.getKey(ids[i]));
+		}
+
+		int[] top = table.getTopIdsByFrequency(3);
+		assertEquals(3, top.length);
+		assertEquals("г", table.getKey(top[0]));
+		assertEquals("б", table.getKey(top[1]));
+		assertEquals("в", table.getKey(top[2]));
+		assertEquals(0, table.getTopIdsByFrequency(0).length);
+		assertEquals(ids.length, table.getTopIdsByFrequency(100).length);
+	}
+
+	/** Порядок русского алфавита: ё вместе с е, а не после я. */
+	public void testRussianOrder() {
+		ConcWordTable table = new ConcWordTable();
+		String[] words = {"яма", "ёлка", "ель", "ежик", "Ёж", "еж", "жук", "zoo", "apple"};
+		for (String word : words) {
+			table.add(word);
+		}
+		String[] expected = {"apple", "zoo", "еж", "ёж", "ежик", "ёлка", "ель", "жук", "яма"};
+		List<ConcWord> alpha = table.getWordsAlphabetically();
+		assertEquals(expected.length, alpha.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], alpha.get(i).getWord());
+		}
+	}
+
+	/** Поразрядная сортировка по ключам дает тот же порядок, что сравнение слов. */
+	public void testSortMatchesCompareTo() {
+		Random random = new Random(1);
+		String letters = "аеёжиклмнопрстуя-ab";
+		ConcWordTable table = new ConcWordTable();
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				word.append(letters.charAt(random.nextInt(letters.length())));
+			}
+			table.add(word.toString());
+		}
+
+		List<ConcWord> expected = new ArrayList<ConcWord>();
+		for (int id = 0; id < table.size(); id++) {
+			expected.add(new ConcWord(table.getKey(id)));
+		}
+		Collections.sort(expected);
+
+		int[] ids = table.getIdsAlphabetically();
+		assertEquals(expected.size(), ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(expected.get(i).getWord(), table.getKey(ids[i]));
+		}
+		for (int i = 1; i < ids.length; i++) {
+			assertTrue(WordCollator.compare(table.getSortKey(ids[i - 1]), table.getKey(ids[i - 1]),
+					table.getSortKey(ids[i]), table.getKey(ids[i])) < 0);
+		}
+	}
+
+	/** Ключи, собранные из весов символов, совпадают с ключами Collator. */
+	public void testSortKeysMatchCollator() {
+		Collator collator = Collator.getInstance(new Locale("ru"));
+		collator.setStrength(Collator.TERTIARY);
+		Random random = new Random(2);
+		String letters = "09azяёеїґ-'\u00AD\u0301Ёz";
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				word.append(letters.charAt(random.nextInt(letters.length())));
+			}
+			String w = word.toString();
+			assertTrue(w, Arrays.equals(collator.getCollationKey(w).toByteArray(), WordCollator.getSortKey(w)));
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ru.suno.concordance.test;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.index.ExternalIndex;
+import ru.suno.concordance.index.InvertedIndex;
+import ru.suno.concordance.index.SentenceFile;
+import ru.suno.concordance.parser.PageSentences;
+import ru.suno.concordance.parser.SentenceParser;
+import ru.suno.concordance.parser.WordParser;
+
+public class TestExternalIndex extends TestCase {
+
+	/** Слияние серий из внешней памяти должно совпадать с индексом в памяти. */
+	public void testMatchesInMemoryIndex() throws Exception {
+		SentenceParser sp = new SentenceParser();
+		WordParser wp = new WordParser();
+
+		InvertedIndex index = new InvertedIndex();
+		ConcWordTable words = new ConcWordTable();
+		int last = -1;
+		for (ConcPage page : Utils.createPages(30)) {
+			PageSentences pageSents = sp.splitPage(page.getText(), page.getReference());
+			index.addPage(pageSents);
+			last = pageSents.linkTo(index.getSentenceTable(), 0, last);
+			wp.countWords(page.getText(), words);
+		}
+
+		// очень маленький объем памяти: серия почти на каждую страницу
+		ExternalIndex external = new ExternalIndex(new File(System.getProperty("java.io.tmpdir")), 2000);
+		try {
+			ConcWordTable externalWords = new ConcWordTable();
+			last = -1;
+			for (ConcPage page : Utils.createPages(30)) {
+				PageSentences pageSents = sp.splitPage(page.getText(), page.getReference());
+				pageSents.addTo(external.getSentenceTable());
+				last = pageSents.linkTo(external.getSentenceTable(), 0, last);
+				last = external.release(last);
+				wp.countWords(page.getText(), externalWords);
+				externalWords = external.spillWords(externalWords);
+			}
+			assertEquals(index.getSentenceCount(), external.getSentenceCount());
+			external.finish(externalWords);
+			assertTrue(external.getRunCount() > 10);
+
+			ExternalIndex.Cursor cursor = external.openWords();
+			for (ConcWord w : words.getWordsAlphabetically()) {
+				assertTrue(cursor.next());
+				assertEquals(w.getWord(), cursor.getKey());
+				assertEquals(w.getSourceWord(), cursor.getSourceWord());
+				assertEquals(w.getManualNumberOfOccurences(), cursor.getCount());
+				for (ConcSentence s : index.getSentences(w.getWord())) {
+					long id = cursor.nextSentence();
+					assertTrue(id != -1);
+					SentenceFile.Sentence read = external.readSentence(id);
+					assertEquals(s.getContextSentence(), read.getText());
+					assertEquals(s.getReference().getVolumeNumber(), read.getVolumeNumber());
+					assertEquals(s.getReference().getPageNumber(), read.getPageNumber());
+				}
+				assertEquals(-1, cursor.nextSentence());
+			}
+			assertFalse(cursor.next());
+		} finally {
+			external.close();
+		}
+	}
+}
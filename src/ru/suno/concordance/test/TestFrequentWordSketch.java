@@ -0,0 +1,61 @@
+package ru.suno.concordance.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.FrequentWordSketch;
+
+public class TestFrequentWordSketch extends TestCase {
+
+	/** Слова с убывающей частотой: слово i встречается примерно в i раз реже первого. */
+	private String[] skewedText(Random rnd, int length, int vocabulary) {
+		String[] text = new String[length];
+		for (int i = 0; i < length; i++) {
+			int word = (int) Math.floor(Math.pow(vocabulary, rnd.nextDouble()));
+			text[i] = (rnd.nextBoolean() ? "Слово" : "слово") + word;
+		}
+		return text;
+	}
+
+	public void testEstimatesAndCandidates() {
+		String[] text = skewedText(new Random(5), 100000, 50000);
+
+		ConcWordTable exact = new ConcWordTable();
+		FrequentWordSketch sketch = new FrequentWordSketch(50, 0.001, 0.01);
+		for (String word : text) {
+			exact.add(word);
+			sketch.add(word, 0, word.length());
+		}
+
+		// оценка не меньше точного количества и завышена не больше чем на epsilon * N
+		assertEquals(100, sketch.getErrorBound());
+		for (int id = 0; id < exact.size(); id++) {
+			long estimate = sketch.getEstimate(exact.getKey(id));
+			assertTrue(estimate >= exact.getCount(id));
+			assertTrue(estimate <= exact.getCount(id) + sketch.getErrorBound());
+		}
+
+		// все слова чаще порога есть среди кандидатов, второй проход дает точные количества
+		ConcWordTable candidates = sketch.getCandidates();
+		assertTrue(candidates.size() <= 50);
+		for (String word : text) {
+			candidates.increment(word, 0, word.length());
+		}
+		for (int id = 0; id < exact.size(); id++) {
+			int candidateId = candidates.indexOf(exact.getKey(id));
+			if (exact.getCount(id) > sketch.getThreshold()) {
+				assertTrue(candidateId != -1);
+			}
+			if (candidateId != -1) {
+				assertEquals(exact.getCount(id), candidates.getCount(candidateId));
+			}
+		}
+
+		int[] top = exact.getTopIdsByFrequency(10);
+		int[] approximateTop = candidates.getTopIdsByFrequency(10);
+		for (int i = 0; i < top.length; i++) {
+			assertEquals(exact.getKey(top[i]), candidates.getKey(approximateTop[i]));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package ru.suno.concordance.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.parser.Highlighter;
+import ru.suno.concordance.parser.StringFilter;
+
+public class TestHighlighter extends TestCase {
+
+	private static final String ALPHABET = "абвАБВulnoe .,;!?\\ΣσςUL";
+
+	private static final String[] WORDS = {"а", "аб", "АБ", "u", "ul", "none", "ulnone", "σ", "аб.", "а б", "\\u"};
+
+	public void testUnderline() {
+		Highlighter highlighter = new Highlighter("Слово");
+		assertEquals("\\ul слово\\ulnone , \\ul Слово\\ulnone . Словом",
+				highlighter.underline(" слово, Слово. Словом ").toString());
+		assertEquals("нет", highlighter.underline("нет").toString());
+	}
+
+	/** Результат должен совпадать с {@link StringFilter#underLineWords(String, String)}. */
+	public void testMatchesUnderLineWords() {
+		Random rnd = new Random(11);
+		for (int n = 0; n < 20000; n++) {
+			StringBuilder sb = new StringBuilder();
+			int length = rnd.nextInt(30);
+			for (int i = 0; i < length; i++) {
+				sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+			}
+			String sentence = sb.toString();
+			String word = WORDS[rnd.nextInt(WORDS.length)];
+
+			assertEquals(sentence + " / " + word, StringFilter.underLineWords(sentence, word),
+					new Highlighter(word).underline(sentence).toString());
+		}
+	}
+}
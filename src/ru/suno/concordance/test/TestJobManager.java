@@ -0,0 +1,101 @@
+package ru.suno.concordance.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.dlg.JobManager;
+
+public class TestJobManager extends TestCase {
+
+	/** Задание ждет запроса на остановку. */
+	private static class WaitingJob extends JobManager.Job {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch stop = new CountDownLatch(1);
+		private volatile boolean stopped = false;
+
+		WaitingJob(String name) {
+			super(name);
+		}
+
+		@Override
+		protected String execute() throws InterruptedException {
+			started.countDown();
+			stop.await();
+			stopped = isCancelRequested();
+			return getName();
+		}
+
+		@Override
+		protected void requestCancel() {
+			stop.countDown();
+		}
+
+		@Override
+		protected boolean isStopped(String aResult) {
+			return stopped;
+		}
+	}
+
+	public void testQueueAndCancel() throws InterruptedException {
+		JobManager manager = new JobManager(1, null);
+		WaitingJob first = new WaitingJob("first");
+		WaitingJob second = new WaitingJob("second");
+		WaitingJob third = new WaitingJob("third");
+		manager.submit(first);
+		manager.submit(second);
+		manager.submit(third);
+		assertTrue(first.started.await(10, TimeUnit.SECONDS));
+		assertEquals(JobManager.State.RUNNING, first.getState());
+		assertEquals(3, manager.getActiveCount());
+
+		// задание из очереди снимается сразу
+		manager.cancel(second);
+		assertEquals(JobManager.State.CANCELLED, second.getState());
+		assertEquals(2, manager.getActiveCount());
+
+		// выполняемое задание останавливается само, следующее запускается
+		manager.cancel(first);
+		assertTrue(third.started.await(10, TimeUnit.SECONDS));
+		assertEquals(JobManager.State.CANCELLED, first.getState());
+		assertEquals("first", first.getResult());
+		assertEquals(1, second.started.getCount());
+
+		third.stop.countDown();
+		for (int i = 0; i < 100 && !third.isFinished(); i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(JobManager.State.DONE, third.getState());
+		assertEquals(0, manager.getActiveCount());
+		manager.shutdown();
+	}
+
+	/** Запрос на остановку после того, как работа сделана, не отменяет результат. */
+	public void testCancelAfterCompletion() throws InterruptedException {
+		final JobManager manager = new JobManager(1, null);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		JobManager.Job job = new JobManager.Job("late") {
+			@Override
+			protected String execute() {
+				// работа сделана, запрос приходит до того, как менеджер узнает о завершении
+				manager.cancel(this);
+				return getName();
+			}
+
+			@Override
+			protected void requestCancel() {
+				cancelled.countDown();
+			}
+		};
+		manager.submit(job);
+		assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 100 && !job.isFinished(); i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(JobManager.State.DONE, job.getState());
+		assertEquals("late", job.getResult());
+		assertTrue(job.isCancelRequested());
+		manager.shutdown();
+	}
+}
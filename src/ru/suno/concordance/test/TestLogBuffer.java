@@ -0,0 +1,57 @@
+package ru.suno.concordance.test;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.dlg.LogBuffer;
+
+public class TestLogBuffer extends TestCase {
+
+	public void testDrain() {
+		LogBuffer buffer = new LogBuffer(4);
+		assertTrue(buffer.isEmpty());
+		buffer.add("один");
+		buffer.add("два");
+		StringBuilder sb = new StringBuilder();
+		assertEquals(0, buffer.drain(sb));
+		assertEquals("один\nдва\n", sb.toString());
+		assertTrue(buffer.isEmpty());
+
+		sb.setLength(0);
+		assertEquals(0, buffer.drain(sb));
+		assertEquals("", sb.toString());
+	}
+
+	/** При переполнении остаются последние сообщения, потерянные считаются. */
+	public void testOverflow() {
+		LogBuffer buffer = new LogBuffer(3);
+		for (int i = 0; i < 10; i++) {
+			buffer.add(String.valueOf(i));
+		}
+		StringBuilder sb = new StringBuilder();
+		assertEquals(6, buffer.drain(sb));
+		assertEquals("6\n7\n8\n9\n", sb.toString());
+	}
+
+	public void testConcurrentWriters() throws InterruptedException {
+		final LogBuffer buffer = new LogBuffer(1 << 16);
+		Thread[] writers = new Thread[4];
+		for (int t = 0; t < writers.length; t++) {
+			final String prefix = String.valueOf(t);
+			writers[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						buffer.add(prefix);
+					}
+				}
+			});
+			writers[t].start();
+		}
+		StringBuilder sb = new StringBuilder();
+		long lost = 0;
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		lost += buffer.drain(sb);
+		assertEquals(0, lost);
+		assertEquals(8000, sb.length());
+	}
+}
@@ -0,0 +1,99 @@
+package ru.suno.concordance.test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.parser.PageReferenceScanner;
+import ru.suno.concordance.parser.PagesParser;
+
+public class TestPageReferenceScanner extends TestCase {
+
+	private static final Pattern PATT_REFERENCE = Pattern.compile("(\\d+),\\s+(\\d+)\\r");
+
+	private static final String TEXT = "Начало 1, 2 без конца 12, 3\rПервая страница.\r"
+			+ "1, 2, 3\r45,\t\n 678\r\r7,8\r9, \r10\r, 11, 12\rПоследняя страница 5, 6";
+
+	/** Ссылки как строки "том,страница:начало-конец". */
+	private static class Collector implements PageReferenceScanner.Listener {
+
+		final List<String> found = new ArrayList<String>();
+
+		@Override
+		public void reference(ConcRef ref, long start, long end) {
+			found.add(ref.getVolumeNumber() + "," + ref.getPageNumber() + ":" + start + "-" + end);
+		}
+	}
+
+	private List<String> findWithRegex(String text) {
+		List<String> found = new ArrayList<String>();
+		Matcher m = PATT_REFERENCE.matcher(text);
+		while (m.find()) {
+			found.add(Integer.parseInt(m.group(1)) + "," + Integer.parseInt(m.group(2))
+					+ ":" + m.start() + "-" + m.end());
+		}
+		return found;
+	}
+
+	public void testMatchesRegex() throws Exception {
+		List<String> expected = findWithRegex(TEXT);
+		assertEquals(5, expected.size());
+
+		Collector whole = new Collector();
+		new PageReferenceScanner(whole).scan(TEXT);
+		assertEquals(expected, whole.found);
+
+		Collector reader = new Collector();
+		new PageReferenceScanner(reader).scan(new StringReader(TEXT));
+		assertEquals(expected, reader.found);
+	}
+
+	/** Ссылка может быть разорвана между частями в любом месте. */
+	public void testSplitAnywhere() {
+		List<String> expected = findWithRegex(TEXT);
+		for (int i = 0; i <= TEXT.length(); i++) {
+			for (int j = i; j <= TEXT.length(); j++) {
+				Collector parts = new Collector();
+				PageReferenceScanner scanner = new PageReferenceScanner(parts);
+				scanner.scan(TEXT.substring(0, i));
+				scanner.scan(TEXT.toCharArray(), i, j - i);
+				scanner.scan(TEXT.substring(j));
+				assertEquals(expected, parts.found);
+				assertEquals(TEXT.length(), scanner.getPosition());
+			}
+		}
+	}
+
+	/** Страницы по частям совпадают со страницами всего текста. */
+	public void testPagesByParts() throws Exception {
+		List<String> expected = toStrings(new PagesParser().parseTextToPages(TEXT));
+		assertEquals(5, expected.size());
+		for (int i = 0; i <= TEXT.length(); i++) {
+			for (int j = i; j <= TEXT.length(); j++) {
+				PagesParser pp = new PagesParser();
+				List<ConcPage> pages = new ArrayList<ConcPage>();
+				pages.addAll(pp.parseNextText(TEXT.substring(0, i)));
+				pages.addAll(pp.parseNextText(TEXT.substring(i, j)));
+				pages.addAll(pp.parseNextText(TEXT.substring(j)));
+				assertEquals(TEXT.indexOf("\r") + 1, pp.getFirstReferenceEnd());
+				pages.addAll(pp.finish());
+				assertEquals(expected, toStrings(pages));
+			}
+		}
+	}
+
+	private List<String> toStrings(Collection<ConcPage> pages) {
+		List<String> result = new ArrayList<String>();
+		for (ConcPage page : pages) {
+			ConcRef ref = page.getReference();
+			result.add(ref.getVolumeNumber() + "," + ref.getPageNumber() + ":" + page.getText());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,50 @@
+package ru.suno.concordance.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.SentenceTable;
+import ru.suno.concordance.parser.PageSentences;
+import ru.suno.concordance.parser.SentenceParser;
+
+public class TestPageSentences extends TestCase {
+
+	/** Параллельное разбиение со связыванием после должно совпадать с последовательным. */
+	public void testSplitThenLinkMatchesSequential() {
+		SentenceParser sp = new SentenceParser();
+
+		List<ConcSentence> sequential = new ArrayList<ConcSentence>();
+		ConcSentence lastSentence = null;
+		for (ConcPage page : Utils.createPages(20)) {
+			for (ConcSentence sent : sp.getAllSentencies(page.getText(), page.getReference(), lastSentence)) {
+				sequential.add(sent);
+				lastSentence = sent;
+			}
+		}
+
+		SentenceTable table = new SentenceTable();
+		int last = -1;
+		for (PageSentences pageSents : sp.splitPages(Utils.createPages(20))) {
+			pageSents.addTo(table);
+			last = pageSents.linkTo(table, 0, last);
+		}
+		List<ConcSentence> parallel = new ArrayList<ConcSentence>();
+		for (int id = 0; id < table.size(); id++) {
+			parallel.add(table.getSentence(id));
+		}
+
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			ConcSentence s = sequential.get(i);
+			ConcSentence p = parallel.get(i);
+			assertEquals(s.getSourceSentence(), p.getSourceSentence());
+			assertEquals("broken " + i, s.isBroken(), p.isBroken());
+			assertEquals("prev " + i, sequential.indexOf(s.getPreviousSentence()), parallel.indexOf(p.getPreviousSentence()));
+			assertEquals("next " + i, sequential.indexOf(s.getNextSentence()), parallel.indexOf(p.getNextSentence()));
+			assertEquals(s.getReference().getPageNumber(), p.getReference().getPageNumber());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package ru.suno.concordance.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.parser.WordTokenizer;
+
+public class TestWordTokenizer extends TestCase {
+
+	private static final String CHAR_CLASS = "[A-Za-zА-Яа-я\\-\\'\\c\\(]";
+
+	private static final String ALPHABET = "abcXYZабвЭЮЯё -',.;!?()[]\r\n\u0001\u000c12";
+
+	private String randomText(Random rnd, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+
+	/** Разбор по таблице должен находить те же слова, что и регулярное выражение. */
+	public void testMatchesRegex() {
+		Pattern pattWord = Pattern.compile(CHAR_CLASS + "+");
+		WordTokenizer tokenizer = new WordTokenizer(Pattern.compile(CHAR_CLASS));
+		Random rnd = new Random(7);
+
+		for (int n = 0; n < 200; n++) {
+			String text = randomText(rnd, rnd.nextInt(300));
+
+			List<String> expected = new ArrayList<String>();
+			Matcher m = pattWord.matcher(text);
+			while (m.find()) {
+				expected.add(m.group());
+			}
+
+			final List<String> actual = new ArrayList<String>();
+			tokenizer.tokenize(text, new WordTokenizer.TokenHandler() {
+				public void token(CharSequence src, int start, int end) {
+					actual.add(src.subSequence(start, end).toString());
+				}
+			});
+			assertEquals(expected, actual);
+		}
+	}
+
+	public void testWordBounds() {
+		WordTokenizer tokenizer = new WordTokenizer(Pattern.compile(CHAR_CLASS));
+		assertEquals(5, tokenizer.getLeadingWordEnd("слово, еще"));
+		assertEquals(0, tokenizer.getLeadingWordEnd(" слово"));
+		assertEquals(7, tokenizer.getTrailingWordStart("слово, еще"));
+		assertEquals(6, tokenizer.getTrailingWordStart("слово."));
+	}
+
+	/** Слово, добавленное частью текста, совпадает со словом, добавленным строкой. */
+	public void testTableAddRange() {
+		ConcWordTable table = new ConcWordTable();
+		String text = "Мир, мир и МИР";
+		int id = table.add("мир");
+		assertEquals(id, table.add(text, 0, 3));
+		assertEquals(id, table.add(text, 5, 8));
+		assertEquals(id, table.add(text, 11, 14));
+		int other = table.add(text, 9, 10);
+		assertEquals(4, table.getCount(id));
+		assertEquals(1, table.getCount(other));
+		assertEquals("и", table.getWord(other).getWord());
+	}
+}
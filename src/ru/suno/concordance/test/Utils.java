@@ -1,8 +1,43 @@
 package ru.suno.concordance.test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
 
 public class Utils {
+
+	/**
+	 * Тексты страниц для тестов разбора и индекса: предложения, разорванные между
+	 * страницами, пустые страницы, сокращения, разный регистр слов.
+	 * */
+	public static final String[] PAGES = {
+		"Первое предложение. Второе предложение без конца",
+		" продолжение на следующей странице. Третье! Разрыв на сокращении стр.",
+		"",
+		"x",
+		"Четвертое? Пятое",
+		".",
+		"Шестое. Седьмое, Первое и Второе. Восьмое\n\rДевятое",
+		"Москва, москва и МОСКВА. Ёж и ель.",
+	};
+
+	/** Страницы {@link #PAGES}, повторенные несколько раз: копия - номер тома, страница - номер страницы. */
+	public static List<ConcPage> createPages(int copies) {
+		List<ConcPage> pages = new ArrayList<ConcPage>();
+		for (int i = 0; i < copies; i++) {
+			for (int j = 0; j < PAGES.length; j++) {
+				ConcPage page = new ConcPage();
+				page.setReference(new ConcRef(i, j));
+				page.setText(PAGES[j]);
+				pages.add(page);
+			}
+		}
+		return pages;
+	}
+
 	public static boolean clearDir(File path, String aFileNamePattern) {        
 		if (path.exists()) {
             if (path.isDirectory()) {
@@ -0,0 +1,291 @@
+package ru.suno.concordance.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Чтение документов с кешем извлеченного текста.
+ * <p>Текст, извлеченный из документа (уже после замены разрывов страниц и греческих
+ * символов), сохраняется в UTF-8 в каталоге {@link #CACHE_DIR} рядом с документом.
+ * Имя файла текста - хеш содержимого документа, поэтому одинаковые документы
+ * читаются один раз, а измененный документ читается заново.
+ * <p>Чтобы не считать хеш при каждом чтении, для каждого документа хранится отметка:
+ * размер, время изменения и хеш. Если размер и время не изменились, хеш берется
+ * из отметки и документ вообще не открывается. Текст читается отображением файла в память.
+ * <p>Текст, на который больше не ссылается ни одна отметка (документ изменился),
+ * удаляется в {@link #removeUnused()}: одинаковые документы делят один текст.
+ * <p>Методы можно вызывать из нескольких потоков.
+ * */
+public class CachedWordFile implements IWordFile {
+
+    /** Каталог кеша, создается рядом с документами. */
+    public static final String CACHE_DIR = ".concordance-text";
+
+    /** Версия кеша, меняется при изменении извлечения текста. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String TEXT_EXT = ".txt";
+    private static final String STAMP_EXT = ".stamp";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final IWordFile wordFile;
+
+    /** Получает сообщения об ошибках кеша, null - сообщения выводятся на консоль. */
+    private final ProcessingListener listener;
+
+    /** Каталоги кеша, в которых после изменения документов мог остаться ненужный текст. */
+    private final Set<File> changedDirs = new HashSet<File>();
+
+    /**
+     * @param aWordFile чтение документов, результат которого кешируется.
+     * */
+    public CachedWordFile(IWordFile aWordFile) {
+        this(aWordFile, null);
+    }
+
+    /**
+     * @param aWordFile чтение документов, результат которого кешируется.
+     * @param aListener получает сообщения об ошибках кеша, может быть null.
+     * */
+    public CachedWordFile(IWordFile aWordFile, ProcessingListener aListener) {
+        wordFile = aWordFile;
+        listener = aListener;
+    }
+
+    /* (non-Javadoc)
+     * @see ru.suno.concordance.utils.IWordFile#readWordFileContent(java.io.File)
+     */
+    public String readWordFileContent(File inFile) {
+        File dir = new File(inFile.getAbsoluteFile().getParentFile(), CACHE_DIR);
+        File stampFile = new File(dir, inFile.getName() + STAMP_EXT);
+        long size = inFile.length();
+        long modified = inFile.lastModified();
+
+        String key = null;
+        String[] stamp = readStamp(stampFile);
+        try {
+            if (stamp != null && Long.parseLong(stamp[0]) == size && Long.parseLong(stamp[1]) == modified) {
+                key = stamp[2];
+            }
+        } catch (NumberFormatException ex) {
+            // испорченная отметка - считаем хеш заново
+        }
+
+        try {
+            if (key == null) {
+                key = getKey(inFile);
+            }
+            String result = readText(new File(dir, key + TEXT_EXT));
+            if (result != null) {
+                if (stamp == null || !key.equals(stamp[2])) {
+                    writeStamp(dir, stampFile, size, modified, key);
+                    markChanged(dir, stamp);
+                }
+                return result;
+            }
+        } catch (IOException ex) {
+            // кеш недоступен - просто читаем документ
+            key = null;
+        }
+
+        String result = wordFile.readWordFileContent(inFile);
+        if (result != null && key != null) {
+            try {
+                if (writeText(dir, key, result)) {
+                    writeStamp(dir, stampFile, size, modified, key);
+                    if (stamp == null || !key.equals(stamp[2])) {
+                        markChanged(dir, stamp);
+                    }
+                }
+            } catch (IOException ex) {
+                log("Cannot cache text of " + inFile + ": " + ex.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Удалить тексты, на которые не ссылается ни одна отметка, в каталогах кеша,
+     * где изменились документы. Вызывается после обработки всех документов.
+     * */
+    public void removeUnused() {
+        List<File> dirs;
+        synchronized (this) {
+            dirs = new ArrayList<File>(changedDirs);
+            changedDirs.clear();
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            Set<String> usedKeys = new HashSet<String>();
+            for (File file : files) {
+                String[] stamp = file.getName().endsWith(STAMP_EXT) ? readStamp(file) : null;
+                if (stamp != null) {
+                    usedKeys.add(stamp[2]);
+                }
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(TEXT_EXT)
+                        && !usedKeys.contains(name.substring(0, name.length() - TEXT_EXT.length()))) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Отметка документа заменена: текст прежнего содержимого может стать ненужным,
+     * но может быть нужен такому же документу, поэтому удаляется позже.
+     * */
+    private synchronized void markChanged(File dir, String[] oldStamp) {
+        if (oldStamp != null) {
+            changedDirs.add(dir);
+        }
+    }
+
+    private void log(String message) {
+        if (listener != null) {
+            listener.message(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see ru.suno.concordance.utils.IWordFile#writeTextFileContent(java.io.File, java.lang.String)
+     */
+    public void writeTextFileContent(File outFile, String content) {
+        wordFile.writeTextFileContent(outFile, content);
+    }
+
+    /* (non-Javadoc)
+     * @see ru.suno.concordance.utils.IWordFile#writeWordFileContent(java.lang.String, java.lang.String)
+     */
+    public void writeWordFileContent(String content, String outFile) {
+        wordFile.writeWordFileContent(content, outFile);
+    }
+
+    /**
+     * Хеш содержимого документа, версии кеша и способа чтения документов.
+     * */
+    private String getKey(File inFile) throws IOException {
+        MessageDigest digest = SegmentStore.createDigest();
+        digest.update((byte) FORMAT_VERSION);
+        digest.update(wordFile.getClass().getName().getBytes(UTF8));
+        SegmentStore.update(digest, inFile);
+        return SegmentStore.toHex(digest.digest());
+    }
+
+    /**
+     * Прочитать текст из кеша.
+     * @return null, если текста в кеше нет.
+     * */
+    private static String readText(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return UTF8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes).toString();
+        } catch (CharacterCodingException ex) {
+            // испорченный файл кеша
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Сохранить текст в кеш. Файл записывается под временным именем и затем
+     * переименовывается, чтобы прерванная запись не оставила неполный текст.
+     * @return false, если текст нельзя сохранить в UTF-8 без потерь
+     * (например, есть непарные суррогатные символы).
+     * */
+    private static boolean writeText(File dir, String key, String text) throws IOException {
+        ByteBuffer bytes;
+        try {
+            bytes = UTF8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .encode(CharBuffer.wrap(text));
+        } catch (CharacterCodingException ex) {
+            return false;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + dir);
+        }
+        File tmpFile = new File(dir, key + ".tmp" + Thread.currentThread().getId());
+        OutputStream out = new FileOutputStream(tmpFile);
+        try {
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } finally {
+            out.close();
+        }
+        SegmentStore.rename(tmpFile, new File(dir, key + TEXT_EXT));
+        return true;
+    }
+
+    /**
+     * Прочитать отметку документа: размер, время изменения, хеш.
+     * @return null, если отметки нет или ее не удалось прочитать.
+     * */
+    private static String[] readStamp(File stampFile) {
+        if (!stampFile.isFile()) {
+            return null;
+        }
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(stampFile), UTF8));
+            try {
+                String line = in.readLine();
+                String[] result = line == null ? null : line.split(" ");
+                return result != null && result.length == 3 ? result : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void writeStamp(File dir, File stampFile, long size, long modified, String key)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + dir);
+        }
+        File tmpFile = new File(dir, stampFile.getName() + ".tmp" + Thread.currentThread().getId());
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmpFile), UTF8);
+        try {
+            out.write(size + " " + modified + " " + key + "\n");
+        } finally {
+            out.close();
+        }
+        SegmentStore.rename(tmpFile, stampFile);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.suno.concordance.utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.index.InvertedIndex;
+import ru.suno.concordance.parser.PageSentences;
+import ru.suno.concordance.parser.PagesParser;
+import ru.suno.concordance.parser.SentenceParser;
+import ru.suno.concordance.parser.WordParser;
+
+/**
+ * Частичный индекс одного документа, построенный независимо от остальных документов.
+ * <p>Все, что может зависеть от соседних документов, хранится отдельно
+ * и обрабатывается при слиянии:
+ * <ul>
+ * <li>слова в начале и в конце документа (слово может быть разорвано между документами);</li>
+ * <li>текст до первой ссылки включительно и после последней ссылки (страница и сама
+ * ссылка могут начаться в предыдущем документе);</li>
+ * <li>связи между предложениями соседних страниц (страницы документа разбиваются
+ * на предложения параллельно и независимо друг от друга).</li>
+ * </ul>
+ * */
+class DocumentPart implements Serializable {
+
+    private static final long serialVersionUID = -7985063174142371181L;
+
+    /** Весь текст документа, если в нем нет ни одной ссылки или он состоит из одного слова. */
+    String text = "";
+
+    /** Документ состоит из одного слова. */
+    boolean singleWord = false;
+
+    /** Слово, с которого начинается документ. */
+    String leadingWord = "";
+
+    /** Слово, которым заканчивается документ. */
+    String trailingWord = "";
+
+    /** Остальные слова документа. */
+    final ConcWordTable words = new ConcWordTable();
+
+    /** Количество ссылок в документе. */
+    int referenceCount = 0;
+
+    /** Текст до конца первой ссылки. */
+    String head = "";
+
+    /** Страницы между первой и последней ссылками, не связанные друг с другом. */
+    final List<PageSentences> pages = new ArrayList<PageSentences>();
+
+    /**
+     * Ссылка первой страницы. Первая ссылка может оказаться концом ссылки
+     * из предыдущего документа, поэтому при слиянии она уточняется.
+     * */
+    ConcRef firstPageRef = null;
+
+    /** Текст после последней ссылки. */
+    String tail = "";
+
+    /** Последняя ссылка документа - ссылка для текста после нее. */
+    ConcRef lastRef = null;
+
+    /** Индекс предложений страниц документа. */
+    final InvertedIndex index = new InvertedIndex();
+
+    /**
+     * Количество слов в документе. Слова в начале и в конце документа
+     * считаются, даже если при слиянии окажутся частью слова из соседнего документа.
+     * */
+    long getWordCount() {
+        if (singleWord) {
+            return text.length() > 0 ? 1 : 0;
+        }
+        return words.getTotalCount() + (leadingWord.length() > 0 ? 1 : 0) + (trailingWord.length() > 0 ? 1 : 0);
+    }
+
+    /**
+     * Разобрать текст документа.
+     * <p>Результат сохраняется между запусками ({@link SegmentStore}): при изменении
+     * разбора нужно увеличить {@link SegmentStore#PARSER_VERSION}.
+     * @param metrics замеры этапов разбора.
+     * */
+    static DocumentPart parse(String docText, WordParser wp, SentenceParser sp, ProcessingMetrics metrics) {
+        DocumentPart part = new DocumentPart();
+
+        // слова
+        ProcessingMetrics.Sample sample = metrics.begin(ProcessingMetrics.TOKENIZE);
+        int leadingEnd = wp.getLeadingWordEnd(docText);
+        if (leadingEnd == docText.length()) {
+            part.singleWord = true;
+            part.text = docText;
+        } else {
+            int trailingStart = wp.getTrailingWordStart(docText);
+            part.leadingWord = docText.substring(0, leadingEnd);
+            part.trailingWord = docText.substring(trailingStart);
+            wp.countWords(docText, leadingEnd, trailingStart, part.words);
+        }
+        sample.end(docText.length(), part.getWordCount());
+
+        // страницы
+        sample = metrics.begin(ProcessingMetrics.PAGES);
+        PagesParser pp = new PagesParser();
+        Collection<ConcPage> docPages = pp.parseNextText(docText);
+        sample.end(docText.length(), docPages.size());
+        if (pp.getPendingRef() == null) {
+            part.text = docText;
+            return part;
+        }
+        part.referenceCount = docPages.size() + 1;
+        part.head = docText.substring(0, pp.getFirstReferenceEnd());
+        part.tail = pp.getPendingText();
+        part.lastRef = pp.getPendingRef();
+
+        // предложения: страницы разбираются параллельно, связываются при слиянии
+        List<ConcPage> pageList = new ArrayList<ConcPage>(docPages);
+        if (!pageList.isEmpty()) {
+            part.firstPageRef = pageList.get(0).getReference();
+        }
+        part.pages.addAll(sp.splitPages(pageList, metrics));
+        sample = metrics.begin(ProcessingMetrics.POSTINGS);
+        int sentenceCount = 0;
+        for (PageSentences pageSents : part.pages) {
+            part.index.addPage(pageSents);
+            sentenceCount += pageSents.size();
+        }
+        sample.end(part.pages.size(), sentenceCount);
+
+        return part;
+    }
+}
@@ -0,0 +1,399 @@
+package ru.suno.concordance.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ru.suno.concordance.ConcPage;
+import ru.suno.concordance.ConcRef;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.SentenceTable;
+import ru.suno.concordance.index.ExternalIndex;
+import ru.suno.concordance.index.InvertedIndex;
+import ru.suno.concordance.parser.PageSentences;
+import ru.suno.concordance.parser.PagesParser;
+import ru.suno.concordance.parser.SentenceParser;
+import ru.suno.concordance.parser.WordParser;
+
+/**
+ * Потоковая обработка исходных документов:
+ * документ -> страницы -> предложения -> слова предложений -> индекс.
+ * <p>Документы читаются и разбираются параллельно в пуле fork/join, каждый документ
+ * дает частичный индекс ({@link DocumentPart}). Частичные индексы сливаются строго
+ * в порядке документов, поэтому результат совпадает с последовательной обработкой
+ * всего текста целиком.
+ * <p>Этап слияния связан с разбором ограниченной очередью, так что в памяти
+ * одновременно находятся только несколько документов, а не весь текст, плюс сам индекс.
+ * <p>Если задан индекс во внешней памяти ({@link #setExternalIndex(ExternalIndex)}),
+ * предложения, пары (слово, предложение) и словарь по мере слияния уходят в него,
+ * и в памяти остаются только разбираемые документы.
+ * <p>Если задан каталог индекса ({@link #setIndexDir(File)}), частичные индексы
+ * сохраняются в нем, и при следующей обработке неизмененные документы не разбираются.
+ * <p>Обработку можно остановить из другого потока ({@link #cancel()}).
+ * <p>Объект используется для одной обработки.
+ * */
+public class DocumentPipeline {
+
+    private final IWordFile wordFile;
+    private final ForkJoinPool pool;
+
+    /** Разбираемые документы в порядке следования. */
+    private final BlockingQueue<DocumentTask> documents;
+
+    /** Признак конца очереди. */
+    private final DocumentTask endOfDocuments = new DocumentTask(null);
+
+    private final WordParser wordParser = new WordParser();
+    private final SentenceParser sentenceParser = new SentenceParser();
+
+    private ConcWordTable words = new ConcWordTable();
+    private final InvertedIndex index = new InvertedIndex();
+
+    /** Индекс во внешней памяти, null - индекс строится в памяти. */
+    private ExternalIndex external = null;
+
+    /** Сохраненные частичные индексы, null - не сохраняются. */
+    private SegmentStore segments = null;
+
+    /** Получает сообщения об обработанных документах, null - не нужно. */
+    private ProcessingListener listener = null;
+
+    private ProcessingMetrics metrics = new ProcessingMetrics();
+
+    private final List<Stage> stages = new ArrayList<Stage>();
+    private volatile Throwable failure = null;
+
+    // состояние слияния: то, что может продолжиться в следующем документе
+    private String wordRest = "";
+    /** Разбирает текст между страницами документов: конец одного и начало следующего. */
+    private PagesParser pageParser = new PagesParser();
+    /** Последнее предложение в индексе, -1 - предложений еще нет. */
+    private int lastSentence = -1;
+
+    public DocumentPipeline(IWordFile aWordFile, int threadCount) {
+        wordFile = aWordFile;
+        pool = new ForkJoinPool(threadCount);
+        documents = new ArrayBlockingQueue<DocumentTask>(threadCount * 2);
+    }
+
+    /**
+     * Сообщать слушателю о каждом обработанном документе. Слушатель вызывается
+     * из потока слияния, в порядке документов.
+     * */
+    public void setListener(ProcessingListener aListener) {
+        listener = aListener;
+    }
+
+    /** Замерять этапы обработки в заданном объекте. */
+    public void setMetrics(ProcessingMetrics aMetrics) {
+        metrics = aMetrics;
+    }
+
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Строить индекс и словарь во внешней памяти, а не в {@link #getIndex()}
+     * и {@link #getWords()}. После обработки индекс закончен
+     * ({@link ExternalIndex#finish(ConcWordTable)}) и только читается.
+     * */
+    public void setExternalIndex(ExternalIndex anExternal) {
+        external = anExternal;
+    }
+
+    /**
+     * Сохранять частичные индексы документов в каталоге и брать их оттуда,
+     * если документ не изменился.
+     * */
+    public void setIndexDir(File dir) throws IOException {
+        segments = new SegmentStore(dir);
+    }
+
+    /**
+     * Обработать документы. Возвращает управление, когда все этапы завершены.
+     * @throws Exception ошибка, на которой остановился один из этапов.
+     * */
+    public void process(final List<File> srcList) throws Exception {
+        try {
+            synchronized (this) {
+                // обработка могла быть остановлена до начала
+                if (failure == null) {
+                    stages.add(new Stage("read") {
+                        @Override
+                        protected void work() throws InterruptedException {
+                            readDocuments(srcList);
+                        }
+                    });
+                    stages.add(new Stage("merge") {
+                        @Override
+                        protected void work() throws Exception {
+                            mergeDocuments();
+                        }
+                    });
+                    for (Stage stage : stages) {
+                        stage.start();
+                    }
+                }
+            }
+            for (Stage stage : stages) {
+                stage.join();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+
+        if (segments != null) {
+            segments.removeUnused();
+        }
+    }
+
+    /**
+     * Остановить обработку: этапы прерываются, уже начатый разбор документов
+     * не дожидается. {@link #process(List)} завершается с {@link CancellationException}.
+     * */
+    public void cancel() {
+        fail(new CancellationException("Обработка остановлена"));
+    }
+
+    /**
+     * Словарь текста с количеством употреблений слов.
+     * Для индекса во внешней памяти - последняя не сброшенная часть.
+     * */
+    public ConcWordTable getWords() {
+        return words;
+    }
+
+    /** Предложения, в которых встречаются слова. */
+    public InvertedIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Запускает разбор документов. Очередь ограничена, поэтому разбор не уходит
+     * далеко вперед от слияния.
+     * */
+    private void readDocuments(List<File> srcList) throws InterruptedException {
+        for (File file : srcList) {
+            DocumentTask task = new DocumentTask(file);
+            pool.execute(task);
+            documents.put(task);
+            metrics.getStage(ProcessingMetrics.INDEX).queueDepth(documents.size());
+        }
+        documents.put(endOfDocuments);
+    }
+
+    private void mergeDocuments() throws Exception {
+        DocumentTask task;
+        while ((task = documents.take()) != endOfDocuments) {
+            DocumentPart part;
+            try {
+                part = task.get();
+            } catch (ExecutionException ex) {
+                throw (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+            }
+            if (part != null) {
+                int sentenceCount = getSentenceCount();
+                ProcessingMetrics.Sample sample = metrics.begin(ProcessingMetrics.INDEX);
+                merge(part);
+                if (external != null) {
+                    // законченные предложения и лишняя часть словаря уходят во внешнюю память
+                    lastSentence = external.release(lastSentence);
+                    words = external.spillWords(words);
+                }
+                sample.end(1, getSentenceCount() - sentenceCount);
+                if (listener != null) {
+                    listener.documentProcessed(task.file, task.file.length(), part.getWordCount(),
+                            getSentenceCount() - sentenceCount);
+                }
+            }
+        }
+        int sentenceCount = getSentenceCount();
+        ProcessingMetrics.Sample sample = metrics.begin(ProcessingMetrics.INDEX);
+        finish();
+        sample.end(0, getSentenceCount() - sentenceCount);
+        if (external != null) {
+            external.finish(words);
+        }
+    }
+
+    /**
+     * Добавить частичный индекс очередного документа.
+     * */
+    private void merge(DocumentPart part) {
+        // слова: слово на стыке документов собирается из конца предыдущего и начала следующего
+        if (part.singleWord) {
+            wordRest = wordRest + part.text;
+        } else {
+            countWords(wordRest + part.leadingWord);
+            words.addAll(part.words);
+            wordRest = part.trailingWord;
+        }
+
+        // страницы: остаток предыдущих документов и начало этого документа
+        // разбираются по мере слияния, ссылка тоже может быть разорвана между документами
+        if (part.referenceCount == 0) {
+            addPages(pageParser.parseNextText(part.text));
+            return;
+        }
+        addPages(pageParser.parseNextText(part.head));
+        ConcRef firstRef = pageParser.getPendingRef();
+
+        ConcRef lastRef = firstRef;
+        if (part.firstPageRef != null) {
+            part.firstPageRef.setVolumeNumber(firstRef.getVolumeNumber());
+            part.firstPageRef.setPageNumber(firstRef.getPageNumber());
+            SentenceTable table = getSentenceTable();
+            int shift = table.size();
+            if (external != null) {
+                // слова предложений считаются при записи во внешнюю память
+                table.addAll(part.index.getSentenceTable());
+            } else {
+                index.addAll(part.index);
+            }
+            for (PageSentences pageSents : part.pages) {
+                lastSentence = pageSents.linkTo(table, shift, lastSentence);
+            }
+            lastRef = part.lastRef;
+        }
+        // страницы документа уже разобраны, разбор продолжается с текста после последней ссылки
+        pageParser = new PagesParser(lastRef);
+        pageParser.parseNextText(part.tail);
+    }
+
+    /** Последние слово и страница. */
+    private void finish() {
+        countWords(wordRest);
+
+        addPages(pageParser.finish());
+    }
+
+    private void countWords(String text) {
+        wordParser.countWords(text, words);
+    }
+
+    private void addPages(Collection<ConcPage> pages) {
+        for (ConcPage page : pages) {
+            addPage(page);
+        }
+    }
+
+    private void addPage(ConcPage page) {
+        PageSentences pageSents = sentenceParser.splitPage(page.getText(), page.getReference());
+        if (external != null) {
+            pageSents.addTo(external.getSentenceTable());
+        } else {
+            index.addPage(pageSents);
+        }
+        lastSentence = pageSents.linkTo(getSentenceTable(), 0, lastSentence);
+    }
+
+    /** Таблица, в которой связываются новые предложения. */
+    private SentenceTable getSentenceTable() {
+        return external != null ? external.getSentenceTable() : index.getSentenceTable();
+    }
+
+    private int getSentenceCount() {
+        return external != null ? external.getSentenceCount() : index.getSentenceCount();
+    }
+
+    private void log(String message) {
+        if (listener != null) {
+            listener.message(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    /** Остановить все этапы после ошибки в одном из них. */
+    private synchronized void fail(Throwable ex) {
+        if (failure == null) {
+            failure = ex;
+            for (Stage stage : stages) {
+                stage.interrupt();
+            }
+        }
+    }
+
+    /** Чтение и разбор одного документа или чтение его сохраненного индекса. */
+    private class DocumentTask extends RecursiveTask<DocumentPart> {
+
+        private static final long serialVersionUID = 4072349650366123524L;
+
+        private final File file;
+
+        DocumentTask(File aFile) {
+            file = aFile;
+        }
+
+        @Override
+        protected DocumentPart compute() {
+            String key = null;
+            if (segments != null) {
+                try {
+                    key = segments.getKey(file);
+                } catch (IOException ex) {
+                    // без сохраненного индекса документ просто разбирается заново
+                    log("Index segment skipped for " + file + ": " + ex);
+                }
+                DocumentPart part = key != null ? segments.load(key) : null;
+                if (part != null) {
+                    return part;
+                }
+            }
+
+            ProcessingMetrics.Sample sample = metrics.begin(ProcessingMetrics.EXTRACT);
+            String fileText = wordFile.readWordFileContent(file);
+            sample.end(file.length(), fileText != null ? fileText.length() : 0);
+            if (fileText == null) {
+                return null;
+            }
+            DocumentPart part = DocumentPart.parse(fileText, wordParser, sentenceParser, metrics);
+
+            if (key != null) {
+                try {
+                    segments.save(key, part);
+                } catch (IOException ex) {
+                    // сохраненный индекс не обязателен: документ обработан, но не сохранен
+                    log("Index segment not saved for " + file + ": " + ex);
+                }
+            }
+            return part;
+        }
+    }
+
+    /** Этап обработки в отдельном потоке. */
+    private abstract class Stage extends Thread {
+
+        Stage(String name) {
+            super("concordance-" + name);
+        }
+
+        protected abstract void work() throws Exception;
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (InterruptedException ex) {
+                // остановлен из-за ошибки в другом этапе
+            } catch (Throwable ex) {
+                fail(ex);
+            }
+        }
+    }
+}
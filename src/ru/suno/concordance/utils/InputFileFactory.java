@@ -4,7 +4,9 @@ public class InputFileFactory {
 	
 	public enum FILE_FORMAT {
 		MS_WORD_97,
-		MS_WORD_2007
+		MS_WORD_2007,
+		/** Текст в UTF-8, см. {@link PlainTextFile}. */
+		PLAIN_TEXT
 	};
 	
 	public static FILE_FORMAT _fileFormat = FILE_FORMAT.MS_WORD_97;
@@ -19,6 +21,9 @@ public class InputFileFactory {
 		case MS_WORD_97:
 			file = new MSWordFile();
 			break;
+		case PLAIN_TEXT:
+			file = new PlainTextFile();
+			break;
 		}
 		
 		return file;
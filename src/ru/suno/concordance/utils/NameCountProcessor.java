@@ -1,101 +1,218 @@
 package ru.suno.concordance.utils;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
-import ru.suno.concordance.ConcWord;
-import ru.suno.concordance.ConcWordList;
-import ru.suno.concordance.dlg.FileSelectDialog;
+import ru.suno.concordance.ConcWordTable;
+import ru.suno.concordance.FrequentWordSketch;
+import ru.suno.concordance.ResourceStrings;
 import ru.suno.concordance.parser.WordParser;
+import ru.suno.concordance.parser.WordTokenizer;
 
 public class NameCountProcessor {
+	/** Кандидатов в частые слова при приближенном подсчете - во столько раз больше, чем выводится. */
+	private static final int CANDIDATE_FACTOR = 4;
+	/** Кандидатов в частые слова при приближенном подсчете, если выводятся все словоформы. */
+	private static final int DEFAULT_CANDIDATE_COUNT = 10000;
+
 	private String docPath = "";
 	private String resultName;
 
-	// TODO: replace FileSelectDialog argument with action listener
-	public String processAllDocuments(List<File> srcList, FileSelectDialog fileSelectDialog) {
-		String result = "";
+	/** Сколько самых частых словоформ выводить, 0 - все. */
+	private int topCount = 0;
 
-		// прочесть текст в буфер из всех файлов
-		IWordFile wr = InputFileFactory.getWordFile();
-		String allText = "";
-		for (File file : srcList) {
-			String fileText = wr.readWordFileContent(file);
-			if (fileText != null) {
-				allText += fileText;
-			}
+	/**
+	 * Приближенный подсчет для очень больших текстов: память не зависит от количества
+	 * различных слов, выводятся только частые слова (с точным количеством употреблений).
+	 * */
+	private boolean approximate = false;
+	/** Допустимое завышение оценки при приближенном подсчете, доля от общего количества слов. */
+	private double approximateEpsilon = 0.00001;
+	/** Вероятность превысить допустимое завышение оценки. */
+	private double approximateDelta = 0.01;
+
+	/** Получает сообщения о ходе обработки, null - сообщения выводятся в консоль. */
+	private ProcessingListener m_listener = null;
+
+	/** Подсчет попросили остановить. */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Остановить подсчет. Можно вызывать из любого потока, подсчет прекращается
+	 * между документами, {@link #processAllDocuments(List, ProcessingListener)}
+	 * возвращает {@link ResourceStrings#PROCESSING_CANCELLED}.
+	 * */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void log(String message) {
+		if (m_listener != null) {
+			m_listener.message(message);
+		} else {
+			System.out.println(message);
 		}
-		
-		// разбить ВЕСЬ текст на слова
-		List<ConcWord> allWords = new ConcWordList();
+	}
+
+	/**
+	 * Сообщить об ошибке записи, из-за которой подсчет прерван.
+	 * @return результат обработки - {@link ResourceStrings#ERROR_GENERAL}.
+	 * */
+	private String fail(Exception e) {
+		String message = ResourceStrings.getInstance().ERROR_GENERAL;
+		log(message);
+		log(PagesProcessor.getStackTrace(e));
+		if (m_listener != null) {
+			m_listener.error(message, e);
+		}
+		return message;
+	}
+
+	/**
+	 * @param listener получает сообщения о ходе обработки, может быть null.
+	 * */
+	public String processAllDocuments(List<File> srcList, ProcessingListener listener) {
+		String result = "";
+		m_listener = listener;
+		if (m_listener != null) {
+			m_listener.stageStarted(ProcessingListener.STAGE_COUNT);
+		}
+
+		CachedWordFile wr = new CachedWordFile(InputFileFactory.getWordFile(), m_listener);
 		WordParser wp = new WordParser();
-		Collection<ConcWord> wrds = wp.getAllWords(allText);
-		
-		ConcWord countWord = null;
-		if (wrds != null) {
-			// добавить найденные в тексте слова
-			for (ConcWord w : wrds) {
-				if (!allWords.contains(w)) {
-					// слова нет в списке
-					countWord = w;
-					countWord.incrementNumberOfOccurences();					
-					allWords.add(countWord);					
-				} else {
-					// слово есть в списке
-					countWord.incrementNumberOfOccurences();					
+		final ConcWordTable wordTable;
+		if (approximate) {
+			wordTable = countFrequentWords(srcList, wr, wp);
+		} else {
+			wordTable = new ConcWordTable();
+			readWords(srcList, wr, wp, new WordTokenizer.TokenHandler() {
+				public void token(CharSequence text, int start, int end) {
+					wordTable.add(text, start, end);
 				}
-			}
+			});
 		}
+		wr.removeUnused();
 		
-		// отсортировать словоформы по количеству употреблений
-		Collections.sort(allWords, new Comparator<ConcWord>() {
-			public int compare(ConcWord w1, ConcWord w2) {
-				int result = 0;
-				if (w1.getManualNumberOfOccurences() < w2.getManualNumberOfOccurences()) {
-					result = 1;
-				} else {
-					result = -1;
-				}
-				return result;
+		if (cancelled) {
+			log(ResourceStrings.getInstance().PROCESSING_CANCELLED);
+			if (m_listener != null) {
+				m_listener.stageFinished(ProcessingListener.STAGE_COUNT);
 			}
-		});
+			return ResourceStrings.getInstance().PROCESSING_CANCELLED;
+		}
 
+		// отсортировать словоформы по количеству употреблений,
+		// объекты словоформ не создаются
+		int[] wordIds = topCount > 0 ? wordTable.getTopIdsByFrequency(topCount) : wordTable.getIdsByFrequency();
 
 		// файл для вывода сохраненяемого конкорданса
-		File outFile = null;
-		RTFFileWriter writer = null;
-		
-		outFile = new File(docPath + "/" + resultName + ".rtf");
-
-		try {
-			writer = new RTFFileWriter(outFile);
-		} catch (Exception ex) {
-			ex.printStackTrace();
+		File outFile = new File(docPath + "/" + resultName + ".rtf");
+		RTFFileWriter writer = new RTFFileWriter(outFile);
+		if (writer.getError() != null) {
+			// файл не удалось создать
+			return fail(writer.getError());
 		}
 
-		StringBuffer outp = new StringBuffer();
-		for (ConcWord w : allWords) {
-            outp.append(w.getWord().trim());
-            outp.append(" : ");
-            outp.append(w.getManualNumberOfOccurences());
-            outp.append("\r\n");
+		// все словоформы - одна статья, пишется в файл сразу
+		if (wordIds.length > 0) {
+			writer.startEntry();
 		}
-		
-		if (writer != null) {
-			writer.writeBodyText(outp.toString());
-			writer.writeRtfFooter();
+		for (int id : wordIds) {
+			writer.writeText(wordTable.getKey(id).trim());
+			writer.writeText(" : ");
+			writer.writeNumber(wordTable.getCount(id));
+			writer.writeParagraph();
+		}
+		writer.endEntry();
+		writer.writeRtfFooter();
+		if (writer.getError() != null) {
+			return fail(writer.getError());
 		}
 
-		if (outFile != null) {
-			result = outFile.getAbsolutePath();
+		result = outFile.getAbsolutePath();
+		if (m_listener != null) {
+			m_listener.stageFinished(ProcessingListener.STAGE_COUNT);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Передать обработчику все слова всех файлов по порядку. Тексты файлов разбиваются
+	 * на слова по одному, в памяти только текст одного файла; слово на стыке файлов
+	 * собирается из конца предыдущего и начала следующего.
+	 * */
+	private void readWords(List<File> srcList, IWordFile wr, WordParser wp, final WordTokenizer.TokenHandler handler) {
+		WordTokenizer tokenizer = wp.getTokenizer();
+		// количество слов для слушателя
+		final long[] wordCount = new long[1];
+		WordTokenizer.TokenHandler countingHandler = new WordTokenizer.TokenHandler() {
+			public void token(CharSequence text, int start, int end) {
+				wordCount[0]++;
+				handler.token(text, start, end);
+			}
+		};
+		String wordRest = "";
+		for (File file : srcList) {
+			if (cancelled) {
+				return;
+			}
+			String fileText = wr.readWordFileContent(file);
+			if (fileText == null) {
+				continue;
+			}
+			wordCount[0] = 0;
+			int leadingEnd = wp.getLeadingWordEnd(fileText);
+			if (leadingEnd == fileText.length()) {
+				wordRest = wordRest + fileText;
+			} else {
+				tokenizer.tokenize(wordRest + fileText.substring(0, leadingEnd), countingHandler);
+				int trailingStart = wp.getTrailingWordStart(fileText);
+				tokenizer.tokenize(fileText, leadingEnd, trailingStart, countingHandler);
+				wordRest = fileText.substring(trailingStart);
+			}
+			if (m_listener != null) {
+				m_listener.documentProcessed(file, file.length(), wordCount[0], 0);
+			}
+		}
+		tokenizer.tokenize(wordRest, handler);
+	}
+
+	/**
+	 * Приближенный подсчет: первый проход находит кандидатов в частые слова
+	 * ({@link FrequentWordSketch}), второй считает точное количество употреблений
+	 * только для них.
+	 * @return словарь кандидатов с точным количеством употреблений.
+	 * */
+	private ConcWordTable countFrequentWords(List<File> srcList, IWordFile wr, WordParser wp) {
+		int candidateCount = topCount > 0 ? topCount * CANDIDATE_FACTOR : DEFAULT_CANDIDATE_COUNT;
+		final FrequentWordSketch sketch = new FrequentWordSketch(candidateCount, approximateEpsilon, approximateDelta);
+		readWords(srcList, wr, wp, new WordTokenizer.TokenHandler() {
+			public void token(CharSequence text, int start, int end) {
+				sketch.add(text, start, end);
+			}
+		});
+		log("Приближенный подсчет: слов " + sketch.getSketch().getTotal()
+				+ ", завышение оценки не больше " + sketch.getErrorBound()
+				+ " с вероятностью " + (1 - approximateDelta)
+				+ ", все слова, встречающиеся больше " + sketch.getThreshold() + " раз, найдены");
+
+		final ConcWordTable candidates = sketch.getCandidates();
+		if (cancelled) {
+			return candidates;
+		}
+		readWords(srcList, wr, wp, new WordTokenizer.TokenHandler() {
+			public void token(CharSequence text, int start, int end) {
+				candidates.increment(text, start, end);
+			}
+		});
+		return candidates;
+	}
+
 	public String getDocPath() {
 		return docPath;
 	}
@@ -108,4 +225,37 @@ public class NameCountProcessor {
 		this.resultName = name;
 	}
 
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * Включить приближенный подсчет для очень больших текстов. Выводятся только
+	 * частые словоформы (не больше {@link #setTopCount(int)}, если задано).
+	 * */
+	public void setApproximate(boolean anApproximate) {
+		this.approximate = anApproximate;
+	}
+
+	/**
+	 * Пределы ошибки приближенного подсчета, см. {@link ru.suno.concordance.CountMinSketch}.
+	 * @param epsilon допустимое завышение оценки, доля от общего количества слов.
+	 * @param delta вероятность превысить допустимое завышение.
+	 * */
+	public void setApproximateError(double epsilon, double delta) {
+		this.approximateEpsilon = epsilon;
+		this.approximateDelta = delta;
+	}
+
+	public int getTopCount() {
+		return topCount;
+	}
+
+	/**
+	 * @param aTopCount сколько самых частых словоформ выводить, 0 - все.
+	 * */
+	public void setTopCount(int aTopCount) {
+		this.topCount = aTopCount;
+	}
+
 }
@@ -1,299 +1,633 @@
-package ru.suno.concordance.utils;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
-
-import ru.suno.concordance.ConcPage;
-import ru.suno.concordance.ConcSentence;
-import ru.suno.concordance.ConcWord;
-import ru.suno.concordance.ConcWordList;
-import ru.suno.concordance.ResourceStrings;
-import ru.suno.concordance.dlg.FileSelectDialog;
-import ru.suno.concordance.parser.PagesParser;
-import ru.suno.concordance.parser.SentenceParser;
-import ru.suno.concordance.parser.StringFilter;
-import ru.suno.concordance.parser.WordParser;
-
-public class PagesProcessor {
-    
-    //private static final int MAX_CHARS_LIMIT = 65535;
-    private String docPath = "";
-    private String resultName;
-    
-    private FileSelectDialog m_fileSelectDialog = null;
-    
-    public PagesProcessor(FileSelectDialog aFileSelectDialog) {
-    	m_fileSelectDialog = aFileSelectDialog;
-    }
-    
-    private void log(String message) {
-    	if (m_fileSelectDialog != null) {
-    		m_fileSelectDialog.logMessage(message);
-    	} else {
-    		System.out.println(message);
-    	}
-    }
-    
-    public static String getStackTrace(Throwable aThrowable) {
-        final Writer result = new StringWriter();
-        final PrintWriter printWriter = new PrintWriter(result);
-        aThrowable.printStackTrace(printWriter);
-        return result.toString();
-    }
-    
-    // TODO: replace FileSelectDialog argument with action listener
-    public synchronized String processAllDocuments(List<File> srcList) {
-        String result = "";        
-        
-        log("Чтение текста из исходных файлов...");
-        // прочесть текст в буфер из всех файлов        
-        IWordFile wr = InputFileFactory.getWordFile();
-        String allText = "";
-        for (File file : srcList) {
-            String fileText = wr.readWordFileContent(file);
-            if (fileText != null) {
-                allText += fileText;
-            }
-        }
-        log("Исходный текст загружен!");
-        
-        log("Разбиение текста на страницы...");
-        // разбить ВЕСЬ текст на страницы
-        PagesParser pp = new PagesParser();
-        Collection<ConcPage> allPages;
-		try {
-			allPages = pp.parseTextToPages(allText);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			log(ResourceStrings.getInstance().ERROR_GENERAL);
-			log(getStackTrace(e));
-			log(ResourceStrings.getInstance().ERROR_PROBLEM_WITH_PAGES_PARSER);
-			return ResourceStrings.getInstance().ERROR_PROBLEM_WITH_PAGES_PARSER;
-		}
-        
-        /*try {
-			FileWriter fw = new FileWriter("c:/1/test.txt");
-			fw.write(allText);
-			fw.close();
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}*/
-        log("Разбиение текста на страницы завершено!");
-        
-        log("Разбиение страниц на предложения...");
-        // разбить каждую страницу из массива<страницы> на предложения
-        Collection<ConcSentence> allSentences = new ArrayList<ConcSentence>();
-        SentenceParser sp = new SentenceParser();
-        
-        ConcSentence lastSentence = null;
-        
-        for (ConcPage pg : allPages) {
-            // получить текст страницы
-            String sen = pg.getText();
-            
-            // распарсить текст на предложения
-            Collection<ConcSentence> pgSents = 
-                sp.getAllSentencies(sen, pg.getReference(), lastSentence);
-            
-            // занести результат в общий массив предложений
-            if (pgSents != null) { 
-                
-                Iterator<ConcSentence> it = pgSents.iterator();
-                while(it.hasNext()) {
-                    lastSentence = it.next();
-                }                                
-                
-                allSentences.addAll(pgSents);
-            }
-        }
-        allPages.clear();
-        allPages = null;        
-        log("Разбиение страниц на предложения завершено!");
-        
-        log("Разбиение всего текста на слова...");
-        // разбить ВЕСЬ текст на слова
-        Collection<ConcWord> allWords = new ConcWordList();
-        WordParser wp = new WordParser();
-        Collection<ConcWord> wrds = wp.getAllWords(allText);
-        log("Разбиение всего текста на слова завершено!");
-            	
-        log("Поиск слов в тексте...");
-		ConcWord countWord = null;
-		if (wrds != null) {
-			// добавить найденные в тексте слова
-			for (ConcWord w : wrds) {
-				if (!allWords.contains(w)) {
-					// слова нет в списке
-					countWord = w;
-					countWord.incrementNumberOfOccurences();					
-					allWords.add(countWord);					
-				} else {
-					// слово есть в списке
-					countWord.incrementNumberOfOccurences();					
-				}
-			}
-		}
-		log("Поиск слов в тексте завершен!");
-        
-		log("Составление списка предложений в которых есть слово...");
-        // для каждого слова из массива <слова>
-        for (ConcWord w : allWords) {
-            for (ConcSentence s : allSentences) {
-                // проверить, входит ли это слово в любое из 
-                // предложений в массиве <предложения>
-                if (s.getSentence().contains(w.getWord())) {
-                    // если входит, то занести это предложение 
-                    // в список предложений для слова                    
-                    w.addSentence(s);
-                }
-            }
-        }
-        log("Составление списка предложений в которых есть слово завершено!");
-        
-        allSentences.clear();
-        allSentences = null;
-        
-        StringBuffer outp = new StringBuffer();
-        String firstLetter = "";
-        
-        // файл для вывода сохраненяемого конкорданса            
-        File outFile = null;
-        RTFFileWriter writer = null;
-        
-        File notFound = new File("./notfound.txt");
-        PrintStream notFoundOut = null;
-        try {
-            notFoundOut = new PrintStream(new FileOutputStream(notFound));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        
-        long totalCounter = 0;
-        for (ConcWord w : allWords) {
-            // получить букву
-            String first = w.getWord().substring(0, 1).toLowerCase();
-            first = StringFilter.escapeFileBadChars(first);
-            if (firstLetter.length()==0 || !first.equals(firstLetter)) {
-                
-                if (!first.equals(firstLetter) & writer!=null) {                
-                    writer.writeRtfFooter();
-                }
-
-                firstLetter = first; 
-                try {                    
-                    outFile = new File(docPath + "/" + resultName + "_" + firstLetter + ".rtf");   
-                    writer = new RTFFileWriter(outFile);
-                    outp.delete(0, outp.length());
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                    //todo: create normal way to avoid such construction
-                    continue;
-                }
-            }
-
-            //todo: create normal way to avoid such construction
-            if (outFile==null || writer==null) {
-                continue;
-            }
-
-            // workaround. TODO Найти лучшее решение для избавления от слов, 
-            // количество которых = 0
-            if (w.getManualNumberOfOccurences() == 0) {
-                notFoundOut.println(w.getWord());
-            }
-            outp.append("\\b ");
-            outp.append(w.getWord().trim());
-            outp.append(" : ");
-            outp.append(w.getManualNumberOfOccurences());
-            outp.append("\\b0 ");
-            outp.append("\r\n");
-            
-            // TODO: replace with action listener
-            log(w.getWord() + " : " + w.getManualNumberOfOccurences());
-            String prevSentence = null;
-            for (ConcSentence s : w.getSentences()) {
-                
-                //выделить все найденные слова в предложении подчеркиванием
-                String underScoreWords = s.getSourceSentence();                 
-
-                // проверить на разрывы и дополнить если необходимо
-                if (s.isBroken()) {
-                    if (s.getPreviousSentence() != null) {
-                        underScoreWords = s.getPreviousSentence().getSourceSentence() + underScoreWords; 
-                    }
-                    if (s.getNextSentence() != null) {                        
-                        underScoreWords = underScoreWords + s.getNextSentence().getSourceSentence() ;
-                    }
-                }
-
-                // пропустить дубликат предложения
-                if (prevSentence != null && underScoreWords.equals(prevSentence)) {
-                    continue;                    
-                }
-                
-                prevSentence = underScoreWords;
-                
-                underScoreWords = underScoreWords.replaceAll("\n", " ");
-                underScoreWords = underScoreWords.trim();                
-                underScoreWords = StringFilter.underLineWords(underScoreWords, w.getSourceWord().trim());               
-
-                outp.append(underScoreWords)
-                        .append("\\b ")
-                        .append("(")
-                        .append(s.getReference().getVolumeNumber()) 
-                        .append(", ")
-                        .append(s.getReference().getPageNumber())
-                        .append(")")
-                        .append("\\b0 ")
-                        .append("\r\n");
-            }
-            totalCounter = totalCounter + outp.length();
-            outp.append("\r\n\r\n");
-            
-            writer.writeBodyText(outp.toString());
-            
-            outp.delete(0, outp.length());
-        }
-        
-        log("Total characters: " + totalCounter);
-        
-        if (notFoundOut!=null) {
-            notFoundOut.flush();
-            notFoundOut.close();
-        }
-        
-        if (writer!=null) {
-            writer.writeRtfFooter();
-        }
-        
-        if (outFile!=null) {
-            result = outFile.getAbsolutePath();            
-        }
-        
-        return result;
-    }  
-
-    public String getDocPath() {
-        return docPath;
-    }
-
-    public void setDocPath(String docPath) {
-        this.docPath = docPath;
-    }
-
-    public void setResultName(String name) {
-        this.resultName = name;        
-    }
-
-}
+package ru.suno.concordance.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ru.suno.concordance.ConcSentence;
+import ru.suno.concordance.ConcWord;
+import ru.suno.concordance.ResourceStrings;
+import ru.suno.concordance.index.ExternalIndex;
+import ru.suno.concordance.index.InvertedIndex;
+import ru.suno.concordance.index.SentenceFile;
+import ru.suno.concordance.parser.Highlighter;
+import ru.suno.concordance.parser.StringFilter;
+
+public class PagesProcessor {
+    
+    //private static final int MAX_CHARS_LIMIT = 65535;
+    private String docPath = "";
+    private String resultName;
+    
+    /** Количество потоков для разбора документов. */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    
+    /** Каталог для разобранных документов, null - рядом с результатом. */
+    private String indexPath = null;
+    
+    /**
+     * Примерный объем памяти для словаря и индекса, байт. 0 - словарь и индекс
+     * строятся целиком в памяти, иначе - во внешней памяти ({@link ExternalIndex}).
+     * */
+    private long memoryBudget = 0;
+    
+    /** Каталог для временных файлов индекса во внешней памяти, null - системный. */
+    private String tempPath = null;
+    
+    /** Получает сообщения о ходе обработки, null - сообщения выводятся в консоль. */
+    private ProcessingListener m_listener = null;
+    
+    /** Обработку попросили остановить. */
+    private volatile boolean cancelled = false;
+    /** Текущий разбор документов, null - разбор не идет. */
+    private volatile DocumentPipeline m_pipeline = null;
+    
+    /** Замеры этапов последней обработки. */
+    private ProcessingMetrics m_metrics = null;
+    
+    public PagesProcessor(ProcessingListener aListener) {
+    	m_listener = aListener;
+    }
+    
+    private void log(String message) {
+    	if (m_listener != null) {
+    		m_listener.message(message);
+    	} else {
+    		System.out.println(message);
+    	}
+    }
+    
+    /** Сообщить об ошибке, из-за которой обработка прервана. */
+    private void fail(String message, Throwable e) {
+        e.printStackTrace();
+        log(ResourceStrings.getInstance().ERROR_GENERAL);
+        log(getStackTrace(e));
+        log(message);
+        if (m_listener != null) {
+            m_listener.error(message, e);
+        }
+    }
+    
+    private void stageStarted(String stage) {
+        if (m_listener != null) {
+            m_listener.stageStarted(stage);
+        }
+    }
+    
+    private void stageFinished(String stage) {
+        if (m_listener != null) {
+            m_listener.stageFinished(stage);
+        }
+    }
+    
+    /**
+     * Остановить обработку. Можно вызывать из любого потока, обработка прекращается
+     * между документами и между файлами букв, {@link #processAllDocuments(List)}
+     * возвращает {@link ResourceStrings#PROCESSING_CANCELLED}.
+     * */
+    public void cancel() {
+        cancelled = true;
+        DocumentPipeline pipeline = m_pipeline;
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /** Сообщить об остановке обработки на этапе. */
+    private String stopped(String stage) {
+        log(ResourceStrings.getInstance().PROCESSING_CANCELLED);
+        stageFinished(stage);
+        return ResourceStrings.getInstance().PROCESSING_CANCELLED;
+    }
+    
+    public static String getStackTrace(Throwable aThrowable) {
+        final Writer result = new StringWriter();
+        final PrintWriter printWriter = new PrintWriter(result);
+        aThrowable.printStackTrace(printWriter);
+        return result.toString();
+    }
+    
+    public synchronized String processAllDocuments(List<File> srcList) {
+        if (memoryBudget <= 0) {
+            return processAllDocuments(srcList, null);
+        }
+        String tmp = tempPath != null ? tempPath : System.getProperty("java.io.tmpdir");
+        ExternalIndex external;
+        try {
+            external = new ExternalIndex(new File(tmp), memoryBudget);
+        } catch (IOException e) {
+            fail(ResourceStrings.getInstance().ERROR_GENERAL, e);
+            return ResourceStrings.getInstance().ERROR_GENERAL;
+        }
+        try {
+            return processAllDocuments(srcList, external);
+        } finally {
+            external.close();
+        }
+    }
+    
+    /**
+     * @param external индекс во внешней памяти, null - индекс строится в памяти.
+     * */
+    private String processAllDocuments(List<File> srcList, ExternalIndex external) {
+        log("Обработка исходных файлов...");
+        stageStarted(ProcessingListener.STAGE_PARSE);
+        // документы читаются и разбиваются на страницы, предложения и слова 
+        // параллельно, весь текст в памяти не хранится
+        // извлеченный текст документов кешируется рядом с ними
+        CachedWordFile textCache = new CachedWordFile(InputFileFactory.getWordFile(), m_listener);
+        DocumentPipeline pipeline = new DocumentPipeline(textCache, threadCount);
+        m_metrics = new ProcessingMetrics();
+        pipeline.setMetrics(m_metrics);
+        if (external != null) {
+            pipeline.setExternalIndex(external);
+        }
+        m_pipeline = pipeline;
+        try {
+            if (cancelled) {
+                return stopped(ProcessingListener.STAGE_PARSE);
+            }
+            // разобранные документы сохраняются, неизмененные заново не разбираются
+            try {
+                pipeline.setIndexDir(new File(getIndexPath()));
+            } catch (IOException e) {
+                // сохранять разобранные документы необязательно
+                log("Index segments disabled: " + e.getMessage());
+            }
+            pipeline.setListener(m_listener);
+            pipeline.process(srcList);
+            textCache.removeUnused();
+        } catch (CancellationException e) {
+            return stopped(ProcessingListener.STAGE_PARSE);
+        } catch (Exception e) {
+            fail(ResourceStrings.getInstance().ERROR_PROBLEM_WITH_PAGES_PARSER, e);
+            return ResourceStrings.getInstance().ERROR_PROBLEM_WITH_PAGES_PARSER;
+        } finally {
+            m_pipeline = null;
+        }
+        if (cancelled) {
+            return stopped(ProcessingListener.STAGE_PARSE);
+        }
+        log("Обработка исходных файлов завершена!");
+        stageFinished(ProcessingListener.STAGE_PARSE);
+        stageStarted(ProcessingListener.STAGE_WRITE);
+        if (external != null) {
+            return writeExternal(external);
+        }
+        
+        Collection<ConcWord> allWords = pipeline.getWords().getWordsAlphabetically();
+        InvertedIndex index = pipeline.getIndex();
+        
+        // слова на одну букву идут не всегда подряд (дефис в начале слова при сравнении
+        // не учитывается), поэтому они собираются по букве в LinkedHashMap,
+        // буквы - в порядке первого слова
+        Map<String, List<ConcWord>> letters = new LinkedHashMap<String, List<ConcWord>>();
+        for (ConcWord w : allWords) {
+            // получить букву
+            String first = w.getWord().substring(0, 1).toLowerCase();
+            first = StringFilter.escapeFileBadChars(first);
+            List<ConcWord> letterWords = letters.get(first);
+            if (letterWords == null) {
+                letterWords = new ArrayList<ConcWord>();
+                letters.put(first, letterWords);
+            }
+            letterWords.add(w);
+        }
+        
+        // файлы букв не зависят друг от друга и пишутся параллельно,
+        // сообщения и ненайденные слова собираются по порядку букв
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) executor).getQueue();
+        List<Future<LetterWriter>> letterWriters = new ArrayList<Future<LetterWriter>>();
+        for (Map.Entry<String, List<ConcWord>> letter : letters.entrySet()) {
+            // файл для вывода сохраненяемого конкорданса            
+            File outFile = new File(docPath + "/" + resultName + "_" + letter.getKey() + ".rtf");
+            letterWriters.add(executor.submit(new LetterWriter(outFile, letter.getValue(), index, m_metrics, queue)));
+        }
+        executor.shutdown();
+        
+        PrintStream notFoundOut = openNotFound();
+        
+        long totalBytes = 0;
+        File outFile = null;
+        try {
+            for (Future<LetterWriter> future : letterWriters) {
+                if (cancelled) {
+                    // начатые файлы дописываются, остальные не начинаются
+                    stopWriters(executor);
+                    return stopped(ProcessingListener.STAGE_WRITE);
+                }
+                LetterWriter letterWriter = future.get();
+                
+                log(letterWriter.outFile.getName() + ": " + letterWriter.words.size() + " words, "
+                        + letterWriter.bytesWritten + " bytes");
+                // workaround. TODO Найти лучшее решение для избавления от слов, 
+                // количество которых = 0
+                for (String word : letterWriter.notFoundWords) {
+                    if (notFoundOut != null) {
+                        notFoundOut.println(word);
+                    }
+                }
+                totalBytes += letterWriter.bytesWritten;
+                outFile = letterWriter.outFile;
+                if (m_listener != null) {
+                    m_listener.documentProcessed(outFile, letterWriter.bytesWritten, letterWriter.words.size(), 0);
+                }
+            }
+        } catch (Exception e) {
+            stopWriters(executor);
+            fail(ResourceStrings.getInstance().ERROR_GENERAL, e instanceof ExecutionException ? e.getCause() : e);
+            return ResourceStrings.getInstance().ERROR_GENERAL;
+        } finally {
+            if (notFoundOut!=null) {
+                notFoundOut.flush();
+                notFoundOut.close();
+            }
+        }
+        log("Total bytes written: " + totalBytes);
+        stageFinished(ProcessingListener.STAGE_WRITE);
+        
+        return finishMetrics(outFile);
+    }
+    
+    /**
+     * Запись файлов букв по индексу во внешней памяти. Слова идут из слияния серий
+     * по алфавиту, предложения читаются из файла предложений, так что в памяти
+     * находится только одна статья. Пишется один файл буквы, остальные приостановлены:
+     * слова на одну букву обычно идут подряд, но не всегда (дефис в начале слова
+     * при сравнении не учитывается).
+     * */
+    private String writeExternal(ExternalIndex external) {
+        ProcessingMetrics.Sample sample = m_metrics.begin(ProcessingMetrics.WRITE);
+        // файлы букв в порядке первого слова, как при записи из памяти
+        Map<String, LetterFile> letters = new LinkedHashMap<String, LetterFile>();
+        LetterFile letter = null;
+        ExternalIndex.Cursor cursor = null;
+        long totalWords = 0;
+        log("Sorted runs on disk: " + external.getRunCount());
+        try {
+            cursor = external.openWords();
+            while (cursor.next()) {
+                if (cancelled) {
+                    finishAll(letters, letter);
+                    return stopped(ProcessingListener.STAGE_WRITE);
+                }
+                String first = cursor.getKey().substring(0, 1).toLowerCase();
+                first = StringFilter.escapeFileBadChars(first);
+                if (letter == null || !first.equals(letter.name)) {
+                    if (letter != null) {
+                        letter.writer.suspend();
+                    }
+                    letter = letters.get(first);
+                    if (letter == null) {
+                        letter = new LetterFile(first);
+                        letters.put(first, letter);
+                    } else {
+                        letter.writer.resume();
+                    }
+                }
+                if (cursor.getCount() == 0) {
+                    letter.notFoundWords.add(cursor.getKey());
+                }
+                
+                RTFFileWriter writer = letter.writer;
+                writeEntryStart(writer, cursor.getKey(), cursor.getCount());
+                Highlighter highlighter = new Highlighter(cursor.getSourceWord());
+                String prevSentence = null;
+                long sentenceId;
+                while ((sentenceId = cursor.nextSentence()) != -1) {
+                    SentenceFile.Sentence s = external.readSentence(sentenceId);
+                    // пропустить дубликат предложения
+                    if (prevSentence != null && s.getText().equals(prevSentence)) {
+                        continue;
+                    }
+                    prevSentence = s.getText();
+                    writeEntrySentence(writer, highlighter, prevSentence, s.getVolumeNumber(), s.getPageNumber());
+                }
+                writeEntryEnd(writer);
+                letter.words++;
+                totalWords++;
+            }
+        } catch (IOException e) {
+            finishAll(letters, letter);
+            fail(ResourceStrings.getInstance().ERROR_GENERAL, e);
+            return ResourceStrings.getInstance().ERROR_GENERAL;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        
+        IOException error = finishAll(letters, letter);
+        if (error != null) {
+            fail(ResourceStrings.getInstance().ERROR_GENERAL, error);
+            return ResourceStrings.getInstance().ERROR_GENERAL;
+        }
+        
+        PrintStream notFoundOut = openNotFound();
+        long totalBytes = 0;
+        File outFile = null;
+        for (LetterFile letterFile : letters.values()) {
+            log(letterFile.outFile.getName() + ": " + letterFile.words + " words, "
+                    + letterFile.writer.getBytesWritten() + " bytes");
+            for (String word : letterFile.notFoundWords) {
+                if (notFoundOut != null) {
+                    notFoundOut.println(word);
+                }
+            }
+            totalBytes += letterFile.writer.getBytesWritten();
+            outFile = letterFile.outFile;
+            if (m_listener != null) {
+                m_listener.documentProcessed(outFile, letterFile.writer.getBytesWritten(), letterFile.words, 0);
+            }
+        }
+        if (notFoundOut != null) {
+            notFoundOut.flush();
+            notFoundOut.close();
+        }
+        sample.end(totalWords, totalBytes);
+        log("Total bytes written: " + totalBytes);
+        stageFinished(ProcessingListener.STAGE_WRITE);
+        
+        return finishMetrics(outFile);
+    }
+    
+    /**
+     * Дописать и закрыть начатые файлы букв. @param active файл, запись которого не приостановлена.
+     * @return первая ошибка записи файлов, null - все файлы записаны.
+     * */
+    private static IOException finishAll(Map<String, LetterFile> letters, LetterFile active) {
+        IOException error = null;
+        for (LetterFile started : letters.values()) {
+            started.finish(started == active);
+            if (error == null) {
+                error = started.writer.getError();
+            }
+        }
+        return error;
+    }
+    
+    /**
+     * Остановить запись файлов букв и дождаться, пока начатые файлы будут дописаны,
+     * чтобы следующая обработка не началась, пока пишутся файлы этой.
+     * */
+    private static void stopWriters(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /** Файл конкорданса для слов на одну букву при записи из внешней памяти. */
+    private class LetterFile {
+        
+        private final String name;
+        private final File outFile;
+        private final RTFFileWriter writer;
+        
+        /** Слова, не найденные в тексте. */
+        private final List<String> notFoundWords = new ArrayList<String>();
+        private long words = 0;
+        
+        LetterFile(String aName) {
+            name = aName;
+            outFile = new File(docPath + "/" + resultName + "_" + name + ".rtf");
+            writer = new RTFFileWriter(outFile);
+        }
+        
+        /** Дописать файл. @param active запись не приостановлена. */
+        void finish(boolean active) {
+            if (!active) {
+                writer.resume();
+            }
+            writer.writeRtfFooter();
+        }
+    }
+    
+    /** Файл для слов, не найденных в тексте, null - не удалось создать. */
+    private static PrintStream openNotFound() {
+        File notFound = new File("./notfound.txt");
+        try {
+            return new PrintStream(new FileOutputStream(notFound));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Закончить обработку: итоги этапов - в журнал и в файл рядом с результатом.
+     * @param outFile последний записанный файл буквы, null - файлов нет.
+     * @return результат обработки: путь последнего файла.
+     * */
+    private String finishMetrics(File outFile) {
+        String result = "";
+        if (outFile!=null) {
+            result = outFile.getAbsolutePath();            
+        }
+        
+        m_metrics.finish();
+        log(m_metrics.toString());
+        File metricsFile = new File(docPath + "/" + resultName + "_metrics.json");
+        try {
+            m_metrics.writeSummary(metricsFile, result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return result;
+    }  
+
+    /**
+     * Запись файла конкорданса для слов на одну букву.
+     * Объект используется одним потоком, результат (ненайденные слова, размер файла)
+     * забирается после завершения записи.
+     * */
+    private static class LetterWriter implements Callable<LetterWriter> {
+        
+        private final File outFile;
+        private final List<ConcWord> words;
+        private final InvertedIndex index;
+        private final ProcessingMetrics metrics;
+        
+        /** Очередь файлов, ожидающих записи, - для замера ее длины. */
+        private final BlockingQueue<Runnable> queue;
+        
+        /** Слова, не найденные в тексте. */
+        private final List<String> notFoundWords = new ArrayList<String>();
+        private long bytesWritten = 0;
+        
+        LetterWriter(File anOutFile, List<ConcWord> aWords, InvertedIndex anIndex, ProcessingMetrics aMetrics,
+                BlockingQueue<Runnable> aQueue) {
+            outFile = anOutFile;
+            words = aWords;
+            index = anIndex;
+            metrics = aMetrics;
+            queue = aQueue;
+        }
+        
+        public LetterWriter call() throws IOException {
+            // сколько файлов еще ждут записи, когда начинается запись этого
+            metrics.getStage(ProcessingMetrics.WRITE).queueDepth(queue.size());
+            ProcessingMetrics.Sample sample = metrics.begin(ProcessingMetrics.WRITE);
+            RTFFileWriter writer = new RTFFileWriter(outFile);
+            for (ConcWord w : words) {
+                if (w.getManualNumberOfOccurences() == 0) {
+                    notFoundWords.add(w.getWord());
+                }
+                writeWord(writer, w);
+            }
+            writer.writeRtfFooter();
+            if (writer.getError() != null) {
+                throw writer.getError();
+            }
+            bytesWritten = writer.getBytesWritten();
+            sample.end(words.size(), bytesWritten);
+            return this;
+        }
+        
+        private void writeWord(RTFFileWriter writer, ConcWord w) {
+            writeEntryStart(writer, w.getWord(), w.getManualNumberOfOccurences());
+            
+            Highlighter highlighter = new Highlighter(w.getSourceWord());
+            String prevSentence = null;
+            for (ConcSentence s : index.getSentences(w.getWord())) {
+                
+                //выделить все найденные слова в предложении подчеркиванием
+                String underScoreWords = s.getContextSentence();
+
+                // пропустить дубликат предложения
+                if (prevSentence != null && underScoreWords.equals(prevSentence)) {
+                    continue;                    
+                }
+                
+                prevSentence = underScoreWords;
+                
+                writeEntrySentence(writer, highlighter, underScoreWords,
+                        s.getReference().getVolumeNumber(), s.getReference().getPageNumber());
+            }
+            writeEntryEnd(writer);
+        }
+    }
+    
+    // статья пишется в файл сразу, по частям
+    
+    /** Заголовок статьи: слово и количество употреблений. */
+    private static void writeEntryStart(RTFFileWriter writer, String word, int count) {
+        writer.startEntry();
+        writer.writeBold(true);
+        writer.writeText(word.trim());
+        writer.writeText(" : ");
+        writer.writeNumber(count);
+        writer.writeBold(false);
+        writer.writeParagraph();
+    }
+    
+    /** Предложение статьи с подчеркнутым словом и ссылкой на страницу. */
+    private static void writeEntrySentence(RTFFileWriter writer, Highlighter highlighter, String sentence,
+            int volume, int page) {
+        String underScoreWords = sentence.replace('\n', ' ');
+        
+        writer.writeText(highlighter.underline(underScoreWords));
+        writer.writeBold(true);
+        writer.writeText("(");
+        writer.writeNumber(volume);
+        writer.writeText(", ");
+        writer.writeNumber(page);
+        writer.writeText(")");
+        writer.writeBold(false);
+        writer.writeParagraph();
+    }
+    
+    private static void writeEntryEnd(RTFFileWriter writer) {
+        writer.writeParagraph();
+        writer.writeParagraph();
+        writer.endEntry();
+    }
+
+    public String getDocPath() {
+        return docPath;
+    }
+
+    public void setDocPath(String docPath) {
+        this.docPath = docPath;
+    }
+
+    public void setResultName(String name) {
+        this.resultName = name;        
+    }
+
+    /**
+     * Каталог для разобранных документов. По умолчанию - каталог
+     * с именем результата и расширением .index рядом с результатом.
+     * */
+    public String getIndexPath() {
+        if (indexPath == null) {
+            return docPath + "/" + resultName + ".index";
+        }
+        return indexPath;
+    }
+
+    public void setIndexPath(String anIndexPath) {
+        this.indexPath = anIndexPath;
+    }
+
+    /**
+     * Замеры этапов последней обработки (см. {@link ProcessingMetrics}),
+     * null - обработки еще не было.
+     * */
+    public ProcessingMetrics getMetrics() {
+        return m_metrics;
+    }
+
+    /**
+     * Примерный объем памяти для словаря и индекса, байт (см. {@link ExternalIndex}).
+     * 0 - все в памяти.
+     * */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long aMemoryBudget) {
+        this.memoryBudget = aMemoryBudget;
+    }
+
+    /** Каталог для временных файлов индекса во внешней памяти, null - системный. */
+    public void setTempPath(String aTempPath) {
+        this.tempPath = aTempPath;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int aThreadCount) {
+        this.threadCount = aThreadCount;
+    }
+
+}
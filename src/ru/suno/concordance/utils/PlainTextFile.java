@@ -0,0 +1,51 @@
+package ru.suno.concordance.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * Текстовые файлы в UTF-8 вместо документов Word: текст читается как есть,
+ * абзацы разделяются символом CR, как в тексте, извлеченном из документа Word.
+ * <p>Нужен для проверок и замеров на созданных программой текстах.
+ * */
+public class PlainTextFile implements IWordFile {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public String readWordFileContent(File inFile) {
+        try {
+            return new String(Files.readAllBytes(inFile.toPath()), UTF8);
+        } catch (IOException ex) {
+            System.out.println("Error while reading source text file!");
+            ex.printStackTrace(System.out);
+            return null;
+        }
+    }
+
+    public void writeTextFileContent(File outFile, String content) {
+        Writer out = null;
+        try {
+            out = new OutputStreamWriter(new FileOutputStream(outFile), UTF8);
+            out.write(content);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public void writeWordFileContent(String content, String outFile) {
+        writeTextFileContent(new File(outFile), content);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.suno.concordance.utils;
+
+import java.io.File;
+
+/**
+ * Получает сообщения о ходе обработки документов (составления конкорданса,
+ * подсчета словоформ), не зависит от интерфейса пользователя.
+ * <p>Методы вызываются из рабочих потоков обработки, не чаще раза на документ
+ * (кроме {@link #message(String)}), и должны быстро возвращать управление.
+ * */
+public interface ProcessingListener {
+
+    /** Этап чтения и разбора документов. */
+    String STAGE_PARSE = "parse";
+    /** Этап записи конкорданса. */
+    String STAGE_WRITE = "write";
+    /** Этап подсчета словоформ. */
+    String STAGE_COUNT = "count";
+
+    /**
+     * Начался этап обработки.
+     * @param stage название этапа, например {@link #STAGE_PARSE}.
+     * */
+    void stageStarted(String stage);
+
+    /** Этап обработки завершен. */
+    void stageFinished(String stage);
+
+    /**
+     * Обработан очередной документ. На этапе записи ({@link #STAGE_WRITE}) - записан
+     * очередной файл результата, слова - количество статей в нем.
+     * @param bytes размер файла документа.
+     * @param words количество слов в документе.
+     * @param sentences количество предложений, добавленных в индекс (0, если предложения не нужны).
+     * */
+    void documentProcessed(File document, long bytes, long words, int sentences);
+
+    /** Сообщение для журнала обработки. */
+    void message(String message);
+
+    /**
+     * Ошибка, из-за которой обработка прервана.
+     * */
+    void error(String message, Throwable ex);
+}
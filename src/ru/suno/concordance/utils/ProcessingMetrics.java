@@ -0,0 +1,317 @@
+package ru.suno.concordance.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Замеры этапов одного составления конкорданса.
+ * <p>Этапы и что считается входом и выходом этапа:
+ * <table>
+ * <tr><td>{@link #EXTRACT}</td><td>байт документа</td><td>символов текста</td></tr>
+ * <tr><td>{@link #PAGES}</td><td>символов текста</td><td>страниц</td></tr>
+ * <tr><td>{@link #SENTENCES}</td><td>страниц</td><td>предложений</td></tr>
+ * <tr><td>{@link #TOKENIZE}</td><td>символов текста</td><td>слов</td></tr>
+ * <tr><td>{@link #POSTINGS}</td><td>страниц</td><td>предложений в индексе документа</td></tr>
+ * <tr><td>{@link #INDEX}</td><td>документов</td><td>предложений в индексе</td></tr>
+ * <tr><td>{@link #WRITE}</td><td>слов</td><td>байт RTF</td></tr>
+ * </table>
+ * <p>Этапы выполняются параллельно, частями в разных потоках. Каждая часть замеряется
+ * в своем потоке ({@link #begin(String)} ... {@link Sample#end(long, long)}), для этапа
+ * складываются время работы, время процессора и выделенная память всех частей,
+ * поэтому время работы этапа может быть больше общего времени обработки.
+ * <p>Каждая часть этапа, если идет запись JDK Flight Recorder, записывается событием
+ * <code>ru.suno.concordance.Stage</code>, итоги этапов - событием
+ * <code>ru.suno.concordance.StageSummary</code> ({@link #finish()}).
+ * */
+public class ProcessingMetrics {
+
+    /** Извлечение текста из документа. */
+    public static final String EXTRACT = "extract";
+    /** Разбиение текста на страницы. */
+    public static final String PAGES = "pages";
+    /** Разбиение страниц на предложения. */
+    public static final String SENTENCES = "sentences";
+    /** Подсчет слов. */
+    public static final String TOKENIZE = "tokenize";
+    /** Построение частичного индекса документа: слова предложений его страниц. */
+    public static final String POSTINGS = "postings";
+    /** Слияние частичных индексов документов. */
+    public static final String INDEX = "index";
+    /** Запись файлов конкорданса. */
+    public static final String WRITE = "write";
+
+    private static final String[] STAGES = {EXTRACT, PAGES, SENTENCES, TOKENIZE, POSTINGS, INDEX, WRITE};
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** Выделенная потоком память, null - не поддерживается виртуальной машиной. */
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    /** Есть ли JDK Flight Recorder. */
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    /** Итоги одного этапа. Обновляются из любых потоков. */
+    public static class StageMetrics {
+
+        private final String name;
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong wallNanos = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+        private final AtomicLong itemsIn = new AtomicLong();
+        private final AtomicLong itemsOut = new AtomicLong();
+        private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+        StageMetrics(String aName) {
+            name = aName;
+        }
+
+        /** Запомнить длину очереди перед этапом, если она больше прежней. */
+        public void queueDepth(int depth) {
+            int peak;
+            while (depth > (peak = peakQueueDepth.get())) {
+                if (peakQueueDepth.compareAndSet(peak, depth)) {
+                    break;
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Количество замеренных частей этапа. */
+        public long getSamples() {
+            return samples.get();
+        }
+
+        /** Время работы, сумма по всем частям, нс. */
+        public long getWallNanos() {
+            return wallNanos.get();
+        }
+
+        /** Время процессора, сумма по всем частям, нс. 0 - не поддерживается. */
+        public long getCpuNanos() {
+            return cpuNanos.get();
+        }
+
+        /** Выделенная память, байт. 0 - не поддерживается. */
+        public long getAllocatedBytes() {
+            return allocatedBytes.get();
+        }
+
+        public long getItemsIn() {
+            return itemsIn.get();
+        }
+
+        public long getItemsOut() {
+            return itemsOut.get();
+        }
+
+        /** Наибольшая длина очереди перед этапом, 0 - у этапа нет очереди. */
+        public int getPeakQueueDepth() {
+            return peakQueueDepth.get();
+        }
+
+        private void add(long wall, long cpu, long allocated, long in, long out) {
+            samples.incrementAndGet();
+            wallNanos.addAndGet(wall);
+            cpuNanos.addAndGet(cpu);
+            allocatedBytes.addAndGet(allocated);
+            itemsIn.addAndGet(in);
+            itemsOut.addAndGet(out);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %8d ms, cpu %8d ms, %8d MB, in %10d, out %10d, queue %d",
+                    name, wallNanos.get() / 1000000, cpuNanos.get() / 1000000,
+                    allocatedBytes.get() >> 20, itemsIn.get(), itemsOut.get(), peakQueueDepth.get());
+        }
+    }
+
+    /** Замер одной части этапа, используется одним потоком. */
+    public class Sample {
+
+        private final StageMetrics stage;
+        private final long startWall;
+        private final long startCpu;
+        private final long startAllocated;
+        private final Object event;
+
+        private Sample(StageMetrics aStage) {
+            stage = aStage;
+            event = JFR_AVAILABLE ? StageEvent.start(aStage.getName()) : null;
+            startAllocated = currentThreadAllocatedBytes();
+            startCpu = currentThreadCpuTime();
+            startWall = System.nanoTime();
+        }
+
+        /** Закончить замер части этапа. */
+        public void end(long itemsIn, long itemsOut) {
+            long wall = System.nanoTime() - startWall;
+            long cpu = currentThreadCpuTime() - startCpu;
+            long allocated = currentThreadAllocatedBytes() - startAllocated;
+            stage.add(wall, cpu, allocated, itemsIn, itemsOut);
+            if (event != null) {
+                StageEvent.end(event, cpu, allocated, itemsIn, itemsOut);
+            }
+        }
+    }
+
+    private final Map<String, StageMetrics> stages;
+    private final long startNanos = System.nanoTime();
+    private volatile long elapsedNanos = -1;
+
+    public ProcessingMetrics() {
+        Map<String, StageMetrics> map = new LinkedHashMap<String, StageMetrics>();
+        for (String name : STAGES) {
+            map.put(name, new StageMetrics(name));
+        }
+        stages = Collections.unmodifiableMap(map);
+    }
+
+    /** Начать замер части этапа в текущем потоке. */
+    public Sample begin(String stage) {
+        return new Sample(getStage(stage));
+    }
+
+    public StageMetrics getStage(String stage) {
+        StageMetrics result = stages.get(stage);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown stage " + stage);
+        }
+        return result;
+    }
+
+    /** Все этапы в порядке обработки. */
+    public Collection<StageMetrics> getStages() {
+        return stages.values();
+    }
+
+    /** Закончить обработку: запомнить общее время, записать итоги этапов в JFR. */
+    public void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+        if (JFR_AVAILABLE) {
+            for (StageMetrics stage : stages.values()) {
+                StageEvent.summary(stage);
+            }
+        }
+    }
+
+    /** Общее время обработки, нс: до {@link #finish()} или до текущего момента. */
+    public long getElapsedNanos() {
+        long elapsed = elapsedNanos;
+        return elapsed >= 0 ? elapsed : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Записать итоги в файл JSON:
+     * <pre>
+     * {"result": "...", "elapsedNanos": N, "stages": [
+     *   {"stage": "extract", "samples": N, "wallNanos": N, "cpuNanos": N,
+     *    "allocatedBytes": N, "itemsIn": N, "itemsOut": N, "peakQueueDepth": N}, ...]}
+     * </pre>
+     * */
+    public void writeSummary(File file, String result) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+        try {
+            out.write("{\"result\": ");
+            writeString(out, result);
+            out.write(", \"elapsedNanos\": " + getElapsedNanos() + ", \"stages\": [");
+            List<StageMetrics> list = new ArrayList<StageMetrics>(stages.values());
+            for (int i = 0; i < list.size(); i++) {
+                StageMetrics stage = list.get(i);
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write("  {\"stage\": ");
+                writeString(out, stage.getName());
+                out.write(", \"samples\": " + stage.getSamples()
+                        + ", \"wallNanos\": " + stage.getWallNanos()
+                        + ", \"cpuNanos\": " + stage.getCpuNanos()
+                        + ", \"allocatedBytes\": " + stage.getAllocatedBytes()
+                        + ", \"itemsIn\": " + stage.getItemsIn()
+                        + ", \"itemsOut\": " + stage.getItemsOut()
+                        + ", \"peakQueueDepth\": " + stage.getPeakQueueDepth() + "}");
+            }
+            out.write("\n]}\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Итоги этапов, по строке на этап. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Total ").append(getElapsedNanos() / 1000000).append(" ms");
+        for (StageMetrics stage : stages.values()) {
+            sb.append('\n').append(stage);
+        }
+        return sb.toString();
+    }
+
+    private static void writeString(Writer out, String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < ' ') {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    private static long currentThreadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return ALLOCATION != null ? ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (LinkageError ex) {
+            // не HotSpot
+        }
+        return null;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+}
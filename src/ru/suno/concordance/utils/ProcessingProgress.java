@@ -0,0 +1,82 @@
+package ru.suno.concordance.utils;
+
+import java.io.File;
+
+/**
+ * Итоги обработки: количество документов, байт, слов и предложений и скорость
+ * обработки с начала текущего этапа. Обновляется слушателем
+ * ({@link ProcessingListener#documentProcessed(File, long, long, int)}),
+ * читать можно из любого потока.
+ * */
+public class ProcessingProgress {
+
+    private String stage = null;
+    private long stageStart = System.currentTimeMillis();
+
+    private int documents = 0;
+    private long bytes = 0;
+    private long words = 0;
+    private long sentences = 0;
+
+    /** Начать отсчет нового этапа. */
+    public synchronized void startStage(String aStage) {
+        stage = aStage;
+        stageStart = System.currentTimeMillis();
+        documents = 0;
+        bytes = 0;
+        words = 0;
+        sentences = 0;
+    }
+
+    public synchronized void addDocument(long docBytes, long docWords, int docSentences) {
+        documents++;
+        bytes += docBytes;
+        words += docWords;
+        sentences += docSentences;
+    }
+
+    public synchronized String getStage() {
+        return stage;
+    }
+
+    public synchronized int getDocuments() {
+        return documents;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getWords() {
+        return words;
+    }
+
+    public synchronized long getSentences() {
+        return sentences;
+    }
+
+    /** Время с начала этапа, мс. */
+    public synchronized long getElapsedMillis() {
+        return Math.max(System.currentTimeMillis() - stageStart, 1);
+    }
+
+    /** Слов в секунду с начала этапа. */
+    public synchronized long getWordsPerSecond() {
+        return words * 1000 / getElapsedMillis();
+    }
+
+    /** Предложений в секунду с начала этапа. */
+    public synchronized long getSentencesPerSecond() {
+        return sentences * 1000 / getElapsedMillis();
+    }
+
+    /** Итоги одной строкой для журнала. */
+    @Override
+    public synchronized String toString() {
+        return stage + ": документов " + documents
+                + ", " + (bytes / 1024) + " КБ"
+                + ", слов " + words + " (" + getWordsPerSecond() + "/с)"
+                + ", предложений " + sentences + " (" + getSentencesPerSecond() + "/с)"
+                + ", " + getElapsedMillis() + " мс";
+    }
+}
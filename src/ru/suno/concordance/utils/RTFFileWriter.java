@@ -1,78 +1,323 @@
-package ru.suno.concordance.utils;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-
-public class RTFFileWriter {
-    
-    private PrintWriter outWriter = null;
-    private File outFile = null;
-
-    public RTFFileWriter(File i_outFile) {
-        outFile = i_outFile;
-        try {
-            outWriter = new PrintWriter(outFile);
-            writeRtfHeader("Test document title", "Author Name");
-        } catch (FileNotFoundException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Converts string to RTF escape sequence.
-     * <p>Supports unicode characters.
-     * But doesn't handle correctly control symbols and CR LF.
-     */
-    public String escape(String javaString)
-    {
-        StringBuffer ret = new StringBuffer();
-        for (int i=0; i < javaString.length(); i++) 
-        {
-            char c = javaString.charAt(i);
-            if (c < 128) {
-                ret.append(c);
-            } else {
-                int ic = (int) c;
-                // write non-ascii character 
-                ret.append("\\u").append(ic).append(' '); 
-            }
-        }
-        if (ret.length() > 0) {
-            ret.insert(0, "\\uc0 "); // change unicode count to 0
-        }
-        return ret.toString();
-    }
- 
-    public void writeRtfHeader(String title, String author) {
-        outWriter.println("{\\rtf1");
-        outWriter.print("{\\info{\\title "+escape(title)+"}");
-        outWriter.println("{\\author "+escape(author)+"}}");
-    }
- 
-    public void writePageHeaderFooter(PrintWriter out, String pageHeader)
-    {
-        out.println("{\\header\\pard\\qc{\\fs50 "+escape(pageHeader)+
-                    "\\par}{\\fs18\\chdate\\par}\\par\\par}");
-        out.println("{\\footer\\pard\\qc\\brdrt\\brdrs\\brdrw10\\brsp100"+
-                    "\\fs18 Page " +
-                    "{\\field{\\*\\fldinst PAGE}{\\fldrslt 1}} of " +
-                    "{\\field{\\*\\fldinst NUMPAGES}{\\fldrslt 1}} \\par}");
-    }
- 
-    public void writeRtfFooter() {
-        outWriter.println("}");
-        outWriter.flush();
-        outWriter.close();
-        
-        outWriter = null;
-        outFile = null;        
-    }
-    
-    public void writeBodyText(String text) {
-        String text2 = escape(text);
-        text2 = text2.replaceAll("\r\n", "\\\\par ");           
-        outWriter.println(text2);        
-    }
-}
+package ru.suno.concordance.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Запись RTF файла.
+ * <p>Текст записывается потоком в буфер, без промежуточных строк: символы не из ASCII
+ * заменяются на <code>\\u</code>, перевод строки (CR LF) - на <code>\\par</code>
+ * прямо при записи. Запись одной статьи:
+ * <pre>
+ * writer.startEntry();
+ * writer.writeBold(true);
+ * writer.writeText(word);
+ * writer.writeBold(false);
+ * writer.writeParagraph();
+ * ...
+ * writer.endEntry();
+ * </pre>
+ * <p>После замены в файле остаются только символы ASCII, поэтому количество
+ * записанных символов равно количеству байт ({@link #getBytesWritten()}).
+ * <p>Ошибки ввода-вывода не выбрасываются: первая ошибка запоминается ({@link #getError()}),
+ * после нее файл больше не пишется. Проверять после {@link #writeRtfFooter()}.
+ * */
+public class RTFFileWriter {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private Writer outWriter = null;
+    private File outFile = null;
+
+    /** Количество записанных байт. */
+    private long bytesWritten = 0;
+
+    /** Первая ошибка записи, null - ошибок не было. */
+    private IOException error = null;
+
+    /** Последним записан CR, который может оказаться началом CR LF. */
+    private boolean pendingCR = false;
+
+    /** Буфер для записи чисел. */
+    private final char[] digits = new char[20];
+
+    public RTFFileWriter(File i_outFile) {
+        outFile = i_outFile;
+        try {
+            outWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), ASCII), BUFFER_SIZE);
+            writeRtfHeader("Test document title", "Author Name");
+        } catch (FileNotFoundException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Converts string to RTF escape sequence.
+     * <p>Supports unicode characters.
+     * But doesn't handle correctly control symbols and CR LF.
+     */
+    public String escape(String javaString)
+    {
+        StringBuffer ret = new StringBuffer();
+        for (int i=0; i < javaString.length(); i++)
+        {
+            char c = javaString.charAt(i);
+            if (c < 128) {
+                ret.append(c);
+            } else {
+                int ic = (int) c;
+                // write non-ascii character
+                ret.append("\\u").append(ic).append(' ');
+            }
+        }
+        if (ret.length() > 0) {
+            ret.insert(0, "\\uc0 "); // change unicode count to 0
+        }
+        return ret.toString();
+    }
+
+    public void writeRtfHeader(String title, String author) {
+        write("{\\rtf1");
+        write(LINE_SEPARATOR);
+        write("{\\info{\\title ");
+        writeEscaped(title);
+        write("}{\\author ");
+        writeEscaped(author);
+        write("}}");
+        write(LINE_SEPARATOR);
+    }
+
+    public void writePageHeaderFooter(PrintWriter out, String pageHeader)
+    {
+        out.println("{\\header\\pard\\qc{\\fs50 "+escape(pageHeader)+
+                    "\\par}{\\fs18\\chdate\\par}\\par\\par}");
+        out.println("{\\footer\\pard\\qc\\brdrt\\brdrs\\brdrw10\\brsp100"+
+                    "\\fs18 Page " +
+                    "{\\field{\\*\\fldinst PAGE}{\\fldrslt 1}} of " +
+                    "{\\field{\\*\\fldinst NUMPAGES}{\\fldrslt 1}} \\par}");
+    }
+
+    public void writeRtfFooter() {
+        write("}");
+        write(LINE_SEPARATOR);
+        close();
+        outWriter = null;
+        outFile = null;
+    }
+
+    /**
+     * Приостановить запись: файл закрывается без окончания документа, буфер
+     * освобождается. Запись продолжается после {@link #resume()}.
+     * */
+    public void suspend() {
+        close();
+        outWriter = null;
+    }
+
+    /** Продолжить приостановленную запись с конца файла. */
+    public void resume() {
+        if (error != null) {
+            return;
+        }
+        try {
+            outWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile, true), ASCII), BUFFER_SIZE);
+        } catch (FileNotFoundException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Записать статью целиком. Перевод строки (CR LF) в тексте заменяется на абзац.
+     * */
+    public void writeBodyText(String text) {
+        if (text.length() > 0) {
+            startEntry();
+            writeText(text);
+        }
+        endEntry();
+    }
+
+    /**
+     * Начать статью: все символы статьи (не из ASCII) записываются как <code>\\u</code>
+     * без замены для программ, не поддерживающих юникод.
+     * */
+    public void startEntry() {
+        write("\\uc0 "); // change unicode count to 0
+    }
+
+    /** Закончить статью. */
+    public void endEntry() {
+        flushCR();
+        write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Записать текст статьи. Символы не из ASCII заменяются на <code>\\u</code>,
+     * CR LF - на <code>\\par</code>, остальные символы (в том числе управляющие
+     * символы RTF) записываются как есть.
+     * */
+    public void writeText(CharSequence text) {
+        writeText(text, 0, text.length());
+    }
+
+    /**
+     * Записать часть текста статьи, см. {@link #writeText(CharSequence)}.
+     * */
+    public void writeText(CharSequence text, int start, int end) {
+        if (error != null) {
+            return;
+        }
+        try {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (pendingCR) {
+                    pendingCR = false;
+                    if (c == '\n') {
+                        writeParagraphMark();
+                        continue;
+                    }
+                    outWriter.write('\r');
+                    bytesWritten++;
+                }
+                if (c == '\r') {
+                    pendingCR = true;
+                } else if (c < 128) {
+                    outWriter.write(c);
+                    bytesWritten++;
+                } else {
+                    // write non-ascii character
+                    outWriter.write('\\');
+                    outWriter.write('u');
+                    writeNumberChars(c);
+                    outWriter.write(' ');
+                    bytesWritten += 3;
+                }
+            }
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /** Записать число в текст статьи. */
+    public void writeNumber(long number) {
+        flushCR();
+        if (error != null) {
+            return;
+        }
+        try {
+            writeNumberChars(number);
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /** Включить или выключить жирный шрифт. */
+    public void writeBold(boolean on) {
+        flushCR();
+        write(on ? "\\b " : "\\b0 ");
+    }
+
+    /** Включить или выключить подчеркивание. */
+    public void writeUnderline(boolean on) {
+        flushCR();
+        write(on ? "\\ul " : "\\ulnone ");
+    }
+
+    /** Конец абзаца, то же, что CR LF в тексте. */
+    public void writeParagraph() {
+        flushCR();
+        if (error != null) {
+            return;
+        }
+        try {
+            writeParagraphMark();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /** Количество байт, записанных в файл (с учетом еще не сброшенного буфера). */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Первая ошибка открытия, записи или закрытия файла, null - файл записан без ошибок. */
+    public IOException getError() {
+        return error;
+    }
+
+    private void failed(IOException e) {
+        if (error == null) {
+            error = e;
+        }
+    }
+
+    private void close() {
+        if (outWriter == null) {
+            return;
+        }
+        try {
+            outWriter.close();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void writeParagraphMark() throws IOException {
+        outWriter.write("\\par ");
+        bytesWritten += 5;
+    }
+
+    private void writeEscaped(String text) {
+        if (text.length() > 0) {
+            startEntry();
+            writeText(text);
+            flushCR();
+        }
+    }
+
+    /** Записать отложенный CR, если за ним не последовал LF. */
+    private void flushCR() {
+        if (pendingCR) {
+            pendingCR = false;
+            write("\r");
+        }
+    }
+
+    private void writeNumberChars(long number) throws IOException {
+        int pos = digits.length;
+        long rest = number;
+        do {
+            digits[--pos] = (char) ('0' + Math.abs(rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        if (number < 0) {
+            digits[--pos] = '-';
+        }
+        outWriter.write(digits, pos, digits.length - pos);
+        bytesWritten += digits.length - pos;
+    }
+
+    private void write(String s) {
+        if (error != null) {
+            return;
+        }
+        try {
+            outWriter.write(s);
+            bytesWritten += s.length();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+}
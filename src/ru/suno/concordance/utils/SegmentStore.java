@@ -0,0 +1,192 @@
+package ru.suno.concordance.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Каталог с разобранными документами (сегментами индекса).
+ * <p>Сегмент - частичный индекс одного документа ({@link DocumentPart}), сохраненный
+ * в файл. Имя файла - хеш содержимого документа и файлов настроек разбора
+ * (дополнительные символы, исключения) с версиями формата и разбора, поэтому
+ * при повторной обработке заново разбираются только измененные документы.
+ * <p>Методы можно вызывать из нескольких потоков.
+ * */
+class SegmentStore {
+
+    /** Версия формата сегментов, меняется при изменении сохраняемых классов. */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Версия разбора документов, меняется при любом изменении результата разбора
+     * ({@link DocumentPart#parse}, разбор слов, предложений и страниц), даже если
+     * сохраняемые классы не изменились. Иначе будут использоваться сегменты,
+     * разобранные по-старому.
+     * */
+    static final int PARSER_VERSION = 1;
+
+    private static final String SEGMENT_EXT = ".seg";
+
+    /** Файлы, от которых зависит результат разбора. */
+    private static final String[] SETTINGS_FILES = {"./add/symbols.doc", "./add/exeptions.doc"};
+
+    private final File dir;
+
+    /** Хеш настроек разбора, входит в ключ каждого сегмента. */
+    private final byte[] settingsDigest;
+
+    /** Сегменты, использованные при обработке. */
+    private final Set<String> usedKeys = new HashSet<String>();
+
+    SegmentStore(File aDir) throws IOException {
+        dir = aDir;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create index directory " + dir);
+        }
+        MessageDigest digest = createDigest();
+        digest.update((byte) FORMAT_VERSION);
+        digest.update((byte) PARSER_VERSION);
+        for (String fileName : SETTINGS_FILES) {
+            File file = new File(fileName);
+            if (file.isFile()) {
+                update(digest, file);
+            }
+        }
+        settingsDigest = digest.digest();
+    }
+
+    /**
+     * Ключ сегмента документа: хеш содержимого файла и настроек разбора.
+     * */
+    String getKey(File source) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update(settingsDigest);
+        update(digest, source);
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Прочитать сегмент.
+     * @return null, если сегмента нет или его не удалось прочитать.
+     * */
+    DocumentPart load(String key) {
+        markUsed(key);
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                return (DocumentPart) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (Exception ex) {
+            // поврежденный или старый сегмент - документ будет разобран заново
+            return null;
+        }
+    }
+
+    /**
+     * Сохранить сегмент. Файл записывается под временным именем и затем
+     * переименовывается, чтобы прерванная запись не оставила неполный сегмент.
+     * */
+    void save(String key, DocumentPart part) throws IOException {
+        markUsed(key);
+        File tmpFile = new File(dir, key + ".tmp" + Thread.currentThread().getId());
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        boolean written = false;
+        try {
+            out.writeObject(part);
+            written = true;
+        } finally {
+            out.close();
+            if (!written) {
+                tmpFile.delete();
+            }
+        }
+        rename(tmpFile, getFile(key));
+    }
+
+    /**
+     * Удалить сегменты, которые не использовались при обработке
+     * (документы изменены или больше не обрабатываются).
+     * */
+    synchronized void removeUnused() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SEGMENT_EXT)
+                    && !usedKeys.contains(name.substring(0, name.length() - SEGMENT_EXT.length()))) {
+                file.delete();
+            }
+        }
+    }
+
+    private synchronized void markUsed(String key) {
+        usedKeys.add(key);
+    }
+
+    private File getFile(String key) {
+        return new File(dir, key + SEGMENT_EXT);
+    }
+
+    /**
+     * Заменить файл записанным временным файлом. Если файл не удалось заменить,
+     * временный файл удаляется.
+     * */
+    static void rename(File tmpFile, File file) throws IOException {
+        if (!tmpFile.renameTo(file)) {
+            file.delete();
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+                throw new IOException("Cannot write " + file);
+            }
+        }
+    }
+
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static void update(MessageDigest digest, File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package ru.suno.concordance.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JDK Flight Recorder: одна часть этапа обработки ({@link ProcessingMetrics.Sample}).
+ * Длительность события - время работы части.
+ * <p>Используется только через статические методы и только если JFR есть
+ * в виртуальной машине, см. {@link ProcessingMetrics}.
+ * */
+@Name("ru.suno.concordance.Stage")
+@Label("Concordance Stage")
+@Category("Concordance")
+@Description("Part of a concordance processing stage")
+@StackTrace(false)
+class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    @Label("Items In")
+    long itemsIn;
+
+    @Label("Items Out")
+    long itemsOut;
+
+    /** Итоги этапа за всю обработку. */
+    @Name("ru.suno.concordance.StageSummary")
+    @Label("Concordance Stage Summary")
+    @Category("Concordance")
+    @Description("Totals of a concordance processing stage")
+    @StackTrace(false)
+    static class Summary extends Event {
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Samples")
+        long samples;
+
+        @Label("Wall Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long wallTime;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Items In")
+        long itemsIn;
+
+        @Label("Items Out")
+        long itemsOut;
+
+        @Label("Peak Queue Depth")
+        int peakQueueDepth;
+    }
+
+    /** Начать событие, null - событие не записывается. */
+    static Object start(String stage) {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.stage = stage;
+        event.begin();
+        return event;
+    }
+
+    static void end(Object started, long cpuTime, long allocated, long itemsIn, long itemsOut) {
+        StageEvent event = (StageEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.cpuTime = cpuTime;
+            event.allocated = allocated;
+            event.itemsIn = itemsIn;
+            event.itemsOut = itemsOut;
+            event.commit();
+        }
+    }
+
+    static void summary(ProcessingMetrics.StageMetrics stage) {
+        Summary event = new Summary();
+        if (event.shouldCommit()) {
+            event.stage = stage.getName();
+            event.samples = stage.getSamples();
+            event.wallTime = stage.getWallNanos();
+            event.cpuTime = stage.getCpuNanos();
+            event.allocated = stage.getAllocatedBytes();
+            event.itemsIn = stage.getItemsIn();
+            event.itemsOut = stage.getItemsOut();
+            event.peakQueueDepth = stage.getPeakQueueDepth();
+            event.commit();
+        }
+    }
+}